@@ -1,175 +1,215 @@
 package vscode;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileWriter;
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
 
-import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.cli.*;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonPrimitive;
-
-import javax.xml.bind.JAXBContext;
-import javax.xml.bind.JAXBException;
-import javax.xml.bind.Unmarshaller;
-
-import vscode.generated.Component;
-import vscode.generated.Component.Configuration.Module;
-import vscode.generated.Component.Configuration.Option;
-
 /**
- * Hello world!
+ * Command line entry point. Only the option parsing lives here, the conversion itself is in Converter,
+ * so that printing the usage or an option error does not load JAXB or Gson.
  *
+ * Besides converting, the index subcommand adds the converted configs to a RunConfigIndex and the query
+ * subcommand searches it, the latter without loading JAXB at all.
  */
 public class App {
-    public static void main(String[] args) throws JAXBException, IOException {
-        if (args.length != 1 && args.length != 3) {
-            System.out.println("Usage: intellijtovscode ./path-to-runConfigurations --module ModuleName");
-            System.out.println("\t--module ModuleName    this flag will override the runConfigurations default module name with the ModuleName provided.");
-        } else {
-            Options options = new Options();
-            options.addOption("m", "module", true, "Override module name.");
-            CommandLineParser parser = new DefaultParser();
-            String pathToRunConfigurations;
-            Boolean moduleNameOverride = false;
-            String moduleNameOverrideString = null;
-            try {
-                CommandLine parsed = parser.parse(options, args);
-                pathToRunConfigurations = parsed.getArgs()[0];
-                if (parsed.hasOption("m")) {
-                    moduleNameOverride = true;
-                    moduleNameOverrideString = parsed.getOptionValue("m");
-                }
-            } catch (ParseException pe) {
-                System.out.println(pe.getMessage());
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("query")) {
+            query(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        boolean index = args.length > 0 && args[0].equals("index");
+        if (index) {
+            args = Arrays.copyOfRange(args, 1, args.length);
+        }
+        Options options = new Options();
+        options.addOption("m", "module", true, "Override module name.");
+        options.addOption("v", "validate", false, "Validate run configurations against runConfig.xsd.");
+        options.addOption("s", "stats", false, "Print conversion statistics.");
+        options.addOption("r", "resolve-modules", false, "Resolve IntelliJ module names to vscode project names.");
+        options.addOption(Option.builder().longOpt("verify")
+                .desc("Verify every main class against the compiled output and dependency jars.").build());
+        options.addOption(Option.builder().longOpt("classpath").hasArg()
+                .desc("Extra jars and class folders to verify main classes against.").build());
+        options.addOption(Option.builder().longOpt("rev").hasArg()
+                .desc("Read the run configurations at a git revision.").build());
+        options.addOption(Option.builder().longOpt("shard")
+                .desc("Write a launch.json per module folder and a .code-workspace referencing them.").build());
+        options.addOption(Option.builder().longOpt("memory-budget").hasArg()
+                .desc("Sort within a memory budget such as 64m, spilling sorted runs to temporary files.").build());
+        options.addOption(Option.builder().longOpt("max-xml-size").hasArg()
+                .desc("Skip xml files larger than this size, such as 32m.").build());
+        options.addOption(Option.builder().longOpt("parse-timeout").hasArg()
+                .desc("Skip xml files that take longer than this many seconds to parse.").build());
+        options.addOption(Option.builder().longOpt("index-dir").hasArg()
+                .desc("The index folder of the index subcommand.").build());
+        options.addOption("w", "workspace", true, "Also convert the run configurations stored in .idea/workspace.xml.");
+        CommandLineParser parser = new DefaultParser();
+        String pathToRunConfigurations;
+        String pathToWorkspace;
+        String moduleNameOverride = null;
+        boolean validate;
+        boolean stats;
+        boolean resolveModules;
+        boolean verify;
+        List<File> classpath = new ArrayList<>();
+        String revision;
+        boolean shard;
+        long memoryBudget = Long.MAX_VALUE;
+        XmlLimits xmlLimits;
+        File indexDirectory = null;
+        try {
+            CommandLine parsed = parser.parse(options, args);
+            pathToWorkspace = parsed.getOptionValue("w");
+            // the runConfigurations folder may be left out when only the workspace file is converted
+            if (parsed.getArgs().length > 1 || parsed.getArgs().length == 0 && pathToWorkspace == null) {
+                printUsage();
                 return;
             }
-
-            File runConfigsFolder = new File(pathToRunConfigurations);
-            LinkedHashMap<String, JsonElement> launch = new LinkedHashMap<>();
-            launch.put("version", new JsonPrimitive("0.2.0"));
-
-            ArrayList<JsonObject> configs = new ArrayList<>();
-            
-            // checks if the folder exists
-            // if it doesn't exist, prints error and then exits
-            if (!runConfigsFolder.exists()) {
-                System.out.printf("\tRun Configs Folder '%s' Not Found%s", pathToRunConfigurations,
-                        System.lineSeparator());
-                return;
+            pathToRunConfigurations = parsed.getArgs().length == 1 ? parsed.getArgs()[0] : null;
+            if (parsed.hasOption("m")) {
+                moduleNameOverride = parsed.getOptionValue("m");
             }
-            for (File runConfig : runConfigsFolder.listFiles()) {
-                if (!FilenameUtils.getExtension(runConfig.getName()).equals("xml"))
-                    continue;
-                try (FileInputStream adrFile = new FileInputStream(runConfig.getPath())) {
-                    LinkedHashMap<String, JsonElement> javaLaunchConfig = new LinkedHashMap<>();
-                    javaLaunchConfig.put("type", new JsonPrimitive("java"));
-
-                    // Creates the JAXB instance and unmarshalls the given runConfig file
-                    JAXBContext ctx = JAXBContext.newInstance(Component.class);
-                    Unmarshaller um = ctx.createUnmarshaller();
-                    
-                    // parses through the wrapper Component element
-                    Component rootElement = (Component) um.unmarshal(adrFile);
-                    // parses through the wrapper Configuration element
-                    Component.Configuration config = rootElement.getConfiguration();
-
-                    javaLaunchConfig.put("name", new JsonPrimitive(config.getName()));
-                    javaLaunchConfig.put("request", new JsonPrimitive("launch"));
-
-                    String className = null;
-                    String moduleName = null;
-
-                    // gets all the inner xml elements
-                    for (Object obj : config.getOptionOrModuleOrMethod()) {
-                        if (obj instanceof Option) {
-                            Option option = (Option) obj;
-
-                            String name = option.getName();
-                            String value = option.getValue();
-                            if (name.equals("WORKING_DIRECTORY")) {
-                                String cwd = value.replace("$PROJECT_DIR$", "${workspaceFolder}");
-                                if (cwd.lastIndexOf("/") == cwd.length() - 1) cwd = cwd.substring(0, cwd.length() - 1);
-                                javaLaunchConfig.put("cwd", new JsonPrimitive(cwd));
-                            } else if (name.equals("MAIN_CLASS_NAME")) {
-                                className = value;
-                            } else if (name.equals("PROGRAM_PARAMETERS")) {
-                                JsonArray argsArray = new JsonArray();
-                                for (String arg : value.split(" ")) {
-                                    argsArray.add(arg);
-                                }
-                                javaLaunchConfig.put("args", argsArray);
-                            }
-                        } else if (obj instanceof Module) {
-                            Module module = (Module) obj;
-
-                            moduleName = module.getName();
-                        }
-                    }
-
-                    // overwrites the moduleName if that setting is set
-                    moduleName = moduleNameOverride ? moduleNameOverrideString : moduleName;
-                    if (className != null && moduleName != null) {
-                        javaLaunchConfig.put("mainClass", new JsonPrimitive(String.join("/", moduleName, className)));
-                    } else if (className != null) {
-                        javaLaunchConfig.put("mainClass", new JsonPrimitive(className));
-                    }
-
-                    // sorts the launch configs in the order that vscode launch configurations are typically sorted
-                    javaLaunchConfig = javaLaunchConfig.entrySet().stream().sorted(Map.Entry.comparingByKey(new Comparator<String>() {
-                        public int compare(String o1, String o2) {
-                            List<String> orderedParams = Arrays.asList("type", "name", "request", "cwd", "mainClass", "args");
-                            int diff = orderedParams.indexOf(o1) - orderedParams.indexOf(o2);
-                            if (diff == 0) return diff;
-                            return diff > 0 ? 1 : -1;
-                        }
-                    })).collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (x, y) -> y, LinkedHashMap::new));
-
-                    // creates a json object version that has all of it's values sorted based on javaLaunchConfig
-                    JsonObject jsonLaunchConfig = new JsonObject();
-                    for (Map.Entry<String, JsonElement> param : javaLaunchConfig.entrySet()) {
-                        jsonLaunchConfig.add(param.getKey(), param.getValue());
-                    }
-                    configs.add(jsonLaunchConfig);
+            validate = parsed.hasOption("v");
+            stats = parsed.hasOption("s");
+            resolveModules = parsed.hasOption("r");
+            verify = parsed.hasOption("verify");
+            revision = parsed.getOptionValue("rev");
+            shard = parsed.hasOption("shard");
+            if (parsed.hasOption("memory-budget")) {
+                memoryBudget = parseSize(parsed.getOptionValue("memory-budget"));
+            }
+            long maxXmlSize = XmlLimits.DEFAULT.maxBytes;
+            if (parsed.hasOption("max-xml-size")) {
+                maxXmlSize = parseSize(parsed.getOptionValue("max-xml-size"));
+            }
+            long parseTimeout = XmlLimits.DEFAULT.timeoutMillis;
+            if (parsed.hasOption("parse-timeout")) {
+                parseTimeout = parseSeconds(parsed.getOptionValue("parse-timeout"));
+            }
+            xmlLimits = new XmlLimits(maxXmlSize, XmlLimits.DEFAULT.maxDepth, parseTimeout);
+            if (index) {
+                indexDirectory = parsed.hasOption("index-dir") ? new File(parsed.getOptionValue("index-dir"))
+                        : RunConfigIndex.defaultDirectory();
+            }
+            if (parsed.hasOption("classpath")) {
+                for (String entry : parsed.getOptionValue("classpath").split(File.pathSeparator)) {
+                    classpath.add(new File(entry));
                 }
             }
+        } catch (ParseException pe) {
+            System.out.println(pe.getMessage());
+            return;
+        }
+        // JAXB and Gson are only loaded from here on, so usage and option errors never pay for them
+        new Converter()
+                .moduleNameOverride(moduleNameOverride)
+                .validate(validate)
+                .stats(stats)
+                .resolveModules(resolveModules)
+                .verify(verify)
+                .classpath(classpath)
+                .revision(revision)
+                .shard(shard)
+                .memoryBudget(memoryBudget)
+                .xmlLimits(xmlLimits)
+                .index(indexDirectory)
+                .convert(pathToRunConfigurations, pathToWorkspace);
+    }
 
-            // sorts the configs so that they are in alphabetical order
-            Collections.sort(configs, new Comparator<JsonObject>() {
-                public int compare(JsonObject ob1, JsonObject ob2) {
-                    return ob1.get("name").getAsString().compareTo(ob2.get("name").getAsString());
+    /**
+     * Parses the query subcommand, every given field has to match.
+     */
+    private static void query(String[] args) throws Exception {
+        Options options = new Options();
+        options.addOption(Option.builder().longOpt("main-class").hasArg()
+                .desc("Main class, fully qualified or simple name.").build());
+        options.addOption(Option.builder().longOpt("module").hasArg().desc("Module name.").build());
+        options.addOption(Option.builder().longOpt("name").hasArg().desc("Word of the run configuration name.").build());
+        options.addOption(Option.builder().longOpt("arg").hasArg().desc("Program argument, such as --profile=prod.").build());
+        options.addOption(Option.builder().longOpt("index-dir").hasArg().desc("The index folder.").build());
+        List<String> terms = new ArrayList<>();
+        File indexDirectory;
+        try {
+            CommandLine parsed = new DefaultParser().parse(options, args);
+            String[][] fields = {{"main-class", RunConfigIndex.MAIN_CLASS}, {"module", RunConfigIndex.MODULE},
+                    {"name", RunConfigIndex.NAME}, {"arg", RunConfigIndex.ARG}};
+            for (String[] field : fields) {
+                if (parsed.hasOption(field[0])) {
+                    terms.add(RunConfigIndex.term(field[1], parsed.getOptionValue(field[0])));
                 }
-            });
-
-            // converts the configs into a JsonArray
-            JsonArray jsonConfigs = new JsonArray();
-            for (JsonObject config : configs) {
-                jsonConfigs.add(config);
             }
-            launch.put("configurations", jsonConfigs);
-
-            // pretty print mode on
-            Gson gson = new GsonBuilder().setPrettyPrinting().create();
-            // write launch.json file
-            try (BufferedWriter writer = new BufferedWriter(new FileWriter("launch.json"))) {
-                writer.write(gson.toJson(launch, launch.getClass()));
+            if (terms.isEmpty() || parsed.getArgs().length > 0) {
+                printUsage();
+                return;
             }
-            System.out.printf("launch.json created successfully in '%s'!%s", System.getProperty("user.dir"), System.lineSeparator());
+            indexDirectory = parsed.hasOption("index-dir") ? new File(parsed.getOptionValue("index-dir"))
+                    : RunConfigIndex.defaultDirectory();
+        } catch (ParseException pe) {
+            System.out.println(pe.getMessage());
+            return;
+        }
+        RunConfigIndex.printQuery(indexDirectory, terms);
+    }
+
+    /**
+     * Parses a size such as 65536, 512k, 64m or 1g into bytes.
+     */
+    private static long parseSize(String size) throws ParseException {
+        String value = size.trim().toLowerCase();
+        long unit = 1;
+        if (value.endsWith("k")) {
+            unit = 1L << 10;
+        } else if (value.endsWith("m")) {
+            unit = 1L << 20;
+        } else if (value.endsWith("g")) {
+            unit = 1L << 30;
+        }
+        if (unit != 1) {
+            value = value.substring(0, value.length() - 1);
         }
+        try {
+            long bytes = Long.parseLong(value) * unit;
+            if (bytes > 0) return bytes;
+        } catch (NumberFormatException nfe) {
+            // reported below
+        }
+        throw new ParseException("Invalid size '" + size + "'");
+    }
+
+    /**
+     * Parses a positive number of seconds, fractions allowed, into milliseconds.
+     */
+    private static long parseSeconds(String seconds) throws ParseException {
+        try {
+            long millis = Math.round(Double.parseDouble(seconds.trim()) * 1000);
+            if (millis > 0) return millis;
+        } catch (NumberFormatException nfe) {
+            // reported below
+        }
+        throw new ParseException("Invalid number of seconds '" + seconds + "'");
+    }
+
+    private static void printUsage() {
+        System.out.println("Usage: intellijtovscode ./path-to-runConfigurations --module ModuleName");
+        System.out.println("\tthe runConfigurations folder may also be a zip/jar archive (searched for .idea/runConfigurations) or archive.zip!/path/inside, which --resolve-modules, --verify and --shard do not support");
+        System.out.println("\t--module ModuleName    this flag will override the runConfigurations default module name with the ModuleName provided.");
+        System.out.println("\t--resolve-modules      resolves every module name to the project name vscode's java tooling uses, from the .iml, Maven and Gradle files of the project.");
+        System.out.println("\t--validate             validates every run configuration against runConfig.xsd while it is parsed, skipping invalid files.");
+        System.out.println("\t--verify               checks every main class against target/classes, build/classes and target/dependency jars of the project and flags the ones that are missing or have no main method.");
+        System.out.println("\t--classpath Path       extra jars, folders of jars and class folders for --verify, separated like a java classpath.");
+        System.out.println("\t--workspace Path       also converts the run configurations that only live in the RunManager of the given .idea/workspace.xml.");
+        System.out.println("\t--rev Revision         reads the runConfigurations folder and workspace file as they are at a git revision (commit, branch or tag) of their repository.");
+        System.out.println("\t--shard                writes a .vscode/launch.json into every module folder with run configs and a <project>.code-workspace opening them, only rewriting the files that changed.");
+        System.out.println("\t--memory-budget Size   keeps at most about Size (bytes, or with a k, m or g suffix) of converted configs in memory, spilling sorted runs to temporary files that are merged into the output.");
+        System.out.println("\t--max-xml-size Size    skips xml files larger than Size (default 32m). Files with a DOCTYPE or nested deeper than 100 elements are always skipped.");
+        System.out.println("\t--parse-timeout Secs   skips xml files that take longer than Secs seconds to parse (default 10).");
+        System.out.println("\t--stats                prints the number of converted run configs, parse and total time and the heap retained by the configs.");
+        System.out.println("Usage: intellijtovscode index ./path-to-runConfigurations [--workspace Path] [--index-dir Path]");
+        System.out.println("\tadds the converted run configs to a searchable index (default ~/.cache/intellijtovscode/index) instead of writing launch.json, only converting files that changed since they were last indexed. Takes the same options as converting.");
+        System.out.println("Usage: intellijtovscode query [--main-class Class] [--module Module] [--name Word] [--arg Arg] [--index-dir Path]");
+        System.out.println("\tprints the indexed run configs matching every given field, case insensitive, without reading any xml.");
     }
 }
@@ -0,0 +1,133 @@
+package vscode;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Maps IntelliJ before-launch steps onto the vscode tasks launch configurations run as their preLaunchTask.
+ *
+ * IntelliJ stores the steps per run config, so the same Make step is repeated in every one of them. Each kind of
+ * step maps onto one shared task instead, and only the tasks actually referenced are written, so launching any config
+ * runs the same incremental build that is skipped when nothing changed.
+ */
+class BuildTasks {
+    static final String VERSION = "2.0.0";
+
+    // the build task contributed by the Java language server; it builds every java project of the workspace
+    // incrementally, the way IntelliJ's Make builds the module and what it depends on
+    static final String JAVA_BUILD = "java (build)";
+    private static final String MAKE = "Make";
+
+    private final Set<String> used = new TreeSet<>();
+
+    /**
+     * @param step the name of the before-launch step, for example Make
+     * @return the label of the task the step maps onto, or null when vscode has no counterpart for it
+     */
+    String taskFor(String step) {
+        if (MAKE.equals(step)) {
+            used.add(JAVA_BUILD);
+            return JAVA_BUILD;
+        }
+        return null;
+    }
+
+    boolean isEmpty() {
+        return used.isEmpty();
+    }
+
+    /**
+     * @param existing the tasks the user already has, as in tasks.json, or null
+     * @return whether a task the configs run is not among them
+     * @throws IOException when the existing tasks are not an array
+     */
+    boolean isMissingFrom(JsonObject existing) throws IOException {
+        return !labels(existing).containsAll(used);
+    }
+
+    /**
+     * Writes the version and tasks of a tasks.json into the object the writer is in, which is either a tasks.json
+     * itself or the tasks object of a .code-workspace.
+     */
+    void write(JsonWriter out) throws IOException {
+        write(out, null);
+    }
+
+    /**
+     * @param existing the object the tasks are merged into, as in tasks.json, or null. Everything in it is kept as it
+     *                 is, including a task of the same label, and only the missing tasks are added after its own.
+     * @throws IOException when the existing tasks are not an array
+     */
+    void write(JsonWriter out, JsonObject existing) throws IOException {
+        JsonArray tasks = LaunchConfiguration.member(existing, "tasks", JsonArray.class);
+        Set<String> labels = labels(existing);
+        if (existing == null || !existing.has("version")) {
+            out.name("version").value(VERSION);
+        }
+        if (existing != null) {
+            for (Map.Entry<String, JsonElement> member : existing.entrySet()) {
+                if (!member.getKey().equals("tasks")) {
+                    out.name(member.getKey());
+                    LaunchConfiguration.writeElement(out, member.getValue());
+                }
+            }
+        }
+        out.name("tasks").beginArray();
+        if (tasks != null) {
+            for (JsonElement task : tasks) {
+                LaunchConfiguration.writeElement(out, task);
+            }
+        }
+        for (String label : used) {
+            if (labels.contains(label)) continue;
+            out.beginObject();
+            out.name("label").value(label);
+            out.name("type").value(JAVA_BUILD);
+            // ${workspace} stands for every folder of the workspace to the java build task
+            out.name("paths").beginArray().value("${workspace}").endArray();
+            out.name("isFullBuild").value(false);
+            out.name("problemMatcher").beginArray().endArray();
+            out.endObject();
+        }
+        out.endArray();
+    }
+
+    /**
+     * Writes a whole tasks.json, formatted like launch.json.
+     */
+    void writeTasks(Writer writer) throws IOException {
+        writeTasks(writer, null);
+    }
+
+    /**
+     * @param existing the tasks.json being replaced, whose tasks and settings are kept, or null
+     */
+    void writeTasks(Writer writer, JsonObject existing) throws IOException {
+        JsonWriter out = LaunchConfiguration.newJsonWriter(writer);
+        out.beginObject();
+        write(out, existing);
+        out.endObject();
+        out.flush();
+    }
+
+    private static Set<String> labels(JsonObject existing) throws IOException {
+        Set<String> labels = new HashSet<>();
+        JsonArray tasks = LaunchConfiguration.member(existing, "tasks", JsonArray.class);
+        if (tasks != null) {
+            for (JsonElement task : tasks) {
+                JsonElement label = task.isJsonObject() ? task.getAsJsonObject().get("label") : null;
+                if (label != null && label.isJsonPrimitive()) labels.add(label.getAsString());
+            }
+        }
+        return labels;
+    }
+}
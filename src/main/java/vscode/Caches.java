@@ -0,0 +1,56 @@
+package vscode;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Locates the on-disk cache shared by every index the converter keeps between runs.
+ */
+final class Caches {
+    private Caches() {
+    }
+
+    /**
+     * @return the intellijtovscode folder inside $XDG_CACHE_HOME (~/.cache by default); the
+     *         intellijtovscode.cache system property overrides it
+     */
+    static File directory() {
+        String override = System.getProperty("intellijtovscode.cache");
+        if (override != null) {
+            return new File(override);
+        }
+        String xdg = System.getenv("XDG_CACHE_HOME");
+        File base = xdg != null && !xdg.isEmpty() ? new File(xdg) : new File(System.getProperty("user.home"), ".cache");
+        return new File(base, "intellijtovscode");
+    }
+
+    /**
+     * @return a cache file named after the hash of the given key, so any path or fingerprint can be used as a key
+     */
+    static File file(String prefix, String key) {
+        return new File(directory(), prefix + "-" + sha1(key) + ".json");
+    }
+
+    static String sha1(String value) {
+        return hex(digest("SHA-1").digest(value.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    static MessageDigest digest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException nsae) {
+            // every JVM is required to ship SHA-1 and SHA-256
+            throw new IllegalStateException(nsae);
+        }
+    }
+
+    static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+}
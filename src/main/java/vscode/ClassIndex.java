@@ -0,0 +1,236 @@
+package vscode;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+
+/**
+ * Index of the class names available in compiled output folders and dependency jars, used to verify that the
+ * main class of every run config still exists and still declares a main method.
+ *
+ * Jars are listed through their zip central directory only, in parallel, and the class list of every jar is cached
+ * under a fingerprint of its path, size and mtime. Class bytes are only read for the handful of main classes verified.
+ */
+class ClassIndex {
+    private static final String MAIN_DESCRIPTOR = "([Ljava/lang/String;)V";
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_STATIC = 0x0008;
+    // guards against cycles in broken class hierarchies
+    private static final int MAX_SUPERCLASSES = 32;
+
+    // class name -> the class folder or jar it was found in, the first location on the classpath wins
+    private final Map<String, File> classes = new HashMap<>();
+    private final AtomicInteger cachedJars = new AtomicInteger();
+    private int jars;
+
+    /**
+     * Indexes the class folders in order, then every jar, listed in parallel.
+     */
+    static ClassIndex build(List<File> classFolders, List<File> jars) {
+        ClassIndex index = new ClassIndex();
+        for (File folder : classFolders) {
+            index.addFolder(folder, folder, "");
+        }
+        index.jars = jars.size();
+        // the jars are listed in parallel but merged in classpath order, so the same jar always wins
+        List<List<String>> jarClasses = jars.parallelStream().map(index::jarClasses).collect(Collectors.toList());
+        for (int i = 0; i < jars.size(); i++) {
+            for (String className : jarClasses.get(i)) {
+                index.classes.putIfAbsent(className, jars.get(i));
+            }
+        }
+        return index;
+    }
+
+    int size() {
+        return classes.size();
+    }
+
+    int jars() {
+        return jars;
+    }
+
+    int cachedJars() {
+        return cachedJars.get();
+    }
+
+    /**
+     * @return null when the class exists and has a public static void main(String[]), otherwise why it does not
+     */
+    String verifyMain(String className) throws IOException {
+        String current = className;
+        for (int i = 0; i < MAX_SUPERCLASSES && current != null; i++) {
+            File location = classes.get(current);
+            if (location == null) {
+                return current.equals(className) ? "class not found" : "no main method";
+            }
+            ClassInfo info = readClass(location, current);
+            if (info.hasMain) {
+                return null;
+            }
+            // a static main is inherited, so the launcher also accepts one declared by a superclass
+            current = info.superClass;
+        }
+        return "no main method";
+    }
+
+    private void addFolder(File root, File folder, String packagePrefix) {
+        File[] children = folder.listFiles();
+        if (children == null) return;
+        for (File child : children) {
+            String name = child.getName();
+            if (child.isDirectory()) {
+                addFolder(root, child, packagePrefix + name + ".");
+            } else if (name.endsWith(".class")) {
+                classes.putIfAbsent(packagePrefix + name.substring(0, name.length() - ".class".length()), root);
+            }
+        }
+    }
+
+    private List<String> jarClasses(File jar) {
+        File cache = Caches.file("jar", jar.getAbsolutePath() + ":" + jar.length() + ":" + jar.lastModified());
+        if (cache.isFile()) {
+            try (Reader reader = Files.newBufferedReader(cache.toPath(), StandardCharsets.UTF_8)) {
+                List<String> names = new ArrayList<>();
+                for (JsonElement name : JsonParser.parseReader(reader).getAsJsonArray()) {
+                    names.add(name.getAsString());
+                }
+                cachedJars.incrementAndGet();
+                return names;
+            } catch (IOException | RuntimeException e) {
+                // falls through to listing the jar again
+            }
+        }
+        List<String> names = new ArrayList<>();
+        // ZipFile only reads the central directory until an entry's content is requested
+        try (ZipFile zip = new ZipFile(jar)) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                String name = entries.nextElement().getName();
+                if (name.endsWith(".class") && !name.startsWith("META-INF/")) {
+                    names.add(name.substring(0, name.length() - ".class".length()).replace('/', '.'));
+                }
+            }
+        } catch (IOException ioe) {
+            // an unreadable jar contributes no classes
+            return names;
+        }
+        JsonArray json = new JsonArray();
+        for (String name : names) {
+            json.add(name);
+        }
+        cache.getParentFile().mkdirs();
+        try (Writer writer = Files.newBufferedWriter(cache.toPath(), StandardCharsets.UTF_8)) {
+            new Gson().toJson(json, writer);
+        } catch (IOException ioe) {
+            // the jar is simply listed again on the next run
+        }
+        return names;
+    }
+
+    private static ClassInfo readClass(File location, String className) throws IOException {
+        String path = className.replace('.', '/') + ".class";
+        if (location.isDirectory()) {
+            try (InputStream in = new FileInputStream(new File(location, path))) {
+                return ClassInfo.read(in);
+            }
+        }
+        try (ZipFile zip = new ZipFile(location)) {
+            ZipEntry entry = zip.getEntry(path);
+            if (entry == null) throw new IOException(path + " not found in " + location);
+            try (InputStream in = zip.getInputStream(entry)) {
+                return ClassInfo.read(in);
+            }
+        }
+    }
+
+    /**
+     * The parts of a class file needed to find a main method: the methods and the superclass.
+     */
+    private static class ClassInfo {
+        boolean hasMain;
+        String superClass;
+
+        static ClassInfo read(InputStream stream) throws IOException {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+            if (in.readInt() != 0xCAFEBABE) throw new IOException("not a class file");
+            in.skipBytes(4); // minor and major version
+
+            // only the utf8 and class entries are kept, everything else in the constant pool is skipped
+            int poolSize = in.readUnsignedShort();
+            String[] utf8 = new String[poolSize];
+            int[] classNames = new int[poolSize];
+            for (int i = 1; i < poolSize; i++) {
+                int tag = in.readUnsignedByte();
+                switch (tag) {
+                    case 1: utf8[i] = in.readUTF(); break;
+                    case 7: classNames[i] = in.readUnsignedShort(); break;
+                    case 8: case 16: case 19: case 20: in.skipBytes(2); break;
+                    case 15: in.skipBytes(3); break;
+                    case 3: case 4: case 9: case 10: case 11: case 12: case 17: case 18: in.skipBytes(4); break;
+                    // longs and doubles take up two constant pool slots
+                    case 5: case 6: in.skipBytes(8); i++; break;
+                    default: throw new IOException("unknown constant pool tag " + tag);
+                }
+            }
+
+            ClassInfo info = new ClassInfo();
+            in.skipBytes(4); // access flags and this class
+            int superIndex = in.readUnsignedShort();
+            if (superIndex != 0) info.superClass = utf8[classNames[superIndex]].replace('/', '.');
+            in.skipBytes(2 * in.readUnsignedShort()); // interfaces
+            skipMembers(in);
+            int methods = in.readUnsignedShort();
+            for (int i = 0; i < methods; i++) {
+                int access = in.readUnsignedShort();
+                String name = utf8[in.readUnsignedShort()];
+                String descriptor = utf8[in.readUnsignedShort()];
+                skipAttributes(in);
+                if ((access & (ACC_PUBLIC | ACC_STATIC)) == (ACC_PUBLIC | ACC_STATIC)
+                        && "main".equals(name) && MAIN_DESCRIPTOR.equals(descriptor)) {
+                    info.hasMain = true;
+                    break;
+                }
+            }
+            return info;
+        }
+
+        private static void skipMembers(DataInputStream in) throws IOException {
+            int count = in.readUnsignedShort();
+            for (int i = 0; i < count; i++) {
+                in.skipBytes(6); // access flags, name and descriptor
+                skipAttributes(in);
+            }
+        }
+
+        private static void skipAttributes(DataInputStream in) throws IOException {
+            int count = in.readUnsignedShort();
+            for (int i = 0; i < count; i++) {
+                in.skipBytes(2);
+                int length = in.readInt();
+                if (in.skipBytes(length) != length) throw new IOException("truncated class file");
+            }
+        }
+    }
+}
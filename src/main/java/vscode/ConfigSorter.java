@@ -0,0 +1,311 @@
+package vscode;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Sorts the converted configs by name, or by folder and name for shards, within a memory budget.
+ *
+ * Configs are buffered until their estimated size exceeds the budget, then the buffer is sorted and spilled to a
+ * temporary file as one run of compact json. The runs are k-way merged back while the output is written, with ties
+ * going to the earlier run, so the order is exactly the one a stable in-memory sort of all configs gives. Every run
+ * being merged holds reader buffers, so no more runs are merged at once than the budget has room for; when there are
+ * more, consecutive runs are first merged into longer runs on disk, as many passes as it takes. Without a budget
+ * nothing is spilled and this is a plain in-memory sort.
+ */
+class ConfigSorter implements Closeable {
+    static final Comparator<LaunchConfiguration> BY_NAME = new Comparator<LaunchConfiguration>() {
+        public int compare(LaunchConfiguration ob1, LaunchConfiguration ob2) {
+            return ob1.name.compareTo(ob2.name);
+        }
+    };
+
+    // rough shallow sizes of the objects behind a config on a 64 bit JVM with compressed oops
+    private static final int CONFIG_BYTES = 40;
+    private static final int STRING_BYTES = 40;
+    private static final int LIST_BYTES = 24;
+    private static final int EXTENSION_BYTES = 64;
+    // the byte buffer of the reader's decoder, the char buffer of the JsonReader and the head config of a run
+    private static final int OPEN_RUN_BYTES = 12 << 10;
+
+    private final long budget;
+    private final Comparator<LaunchConfiguration> order;
+    private final List<LaunchConfiguration> buffer = new ArrayList<>();
+    private final List<File> runs = new ArrayList<>();
+    private long buffered;
+    private int size;
+    private int spilled;
+    private int passes;
+
+    /**
+     * @param budget the estimated bytes of configs kept in memory before a run is spilled, or Long.MAX_VALUE to
+     *               never spill
+     */
+    ConfigSorter(long budget) {
+        this(budget, BY_NAME);
+    }
+
+    /**
+     * @param order the order of sorted(), for example LaunchShards.BY_FOLDER
+     */
+    ConfigSorter(long budget, Comparator<LaunchConfiguration> order) {
+        this.budget = budget;
+        this.order = order;
+    }
+
+    void add(LaunchConfiguration config) throws IOException {
+        buffer.add(config);
+        buffered += estimate(config);
+        size++;
+        if (buffered > budget) {
+            spill();
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return how many runs were spilled to disk
+     */
+    int runs() {
+        return spilled;
+    }
+
+    /**
+     * @return how many merge passes over the spilled runs sorted() took, the last one being the merge into the output
+     */
+    int passes() {
+        return passes;
+    }
+
+    /**
+     * @return every added config in order, streamed from the spilled runs; reading a run fails with an
+     *         UncheckedIOException
+     */
+    Iterable<LaunchConfiguration> sorted() throws IOException {
+        if (runs.isEmpty()) {
+            Collections.sort(buffer, order);
+            return buffer;
+        }
+        // the configs still in memory are spilled as the last run, so the whole budget is left for merging
+        if (!buffer.isEmpty()) {
+            spill();
+        }
+        int fanIn = (int) Math.max(2, Math.min(budget / OPEN_RUN_BYTES, Integer.MAX_VALUE));
+        passes = 1;
+        while (runs.size() > fanIn) {
+            mergePass(fanIn);
+            passes++;
+        }
+        List<File> last = new ArrayList<>(runs);
+        return () -> new Merge(order, open(last));
+    }
+
+    /**
+     * Drops the configs still in memory and deletes the spilled runs, closing twice is harmless.
+     */
+    @Override
+    public void close() {
+        buffer.clear();
+        for (File run : runs) {
+            run.delete();
+        }
+    }
+
+    private void spill() throws IOException {
+        Collections.sort(buffer, order);
+        runs.add(write(buffer.iterator()));
+        spilled++;
+        buffer.clear();
+        buffered = 0;
+    }
+
+    /**
+     * Merges every fanIn consecutive runs into one, which keeps ties in the order the configs were added in.
+     */
+    private void mergePass(int fanIn) throws IOException {
+        List<File> merged = new ArrayList<>();
+        try {
+            for (int start = 0; start < runs.size(); start += fanIn) {
+                List<File> group = runs.subList(start, Math.min(start + fanIn, runs.size()));
+                if (group.size() > 1) {
+                    merged.add(write(new Merge(order, open(group))));
+                    for (File run : group) {
+                        run.delete();
+                    }
+                } else {
+                    merged.add(group.get(0));
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            // leaves the runs merged so far for close() to delete as well
+            runs.addAll(merged);
+            throw e instanceof UncheckedIOException ? ((UncheckedIOException) e).getCause() : (IOException) e;
+        }
+        runs.clear();
+        runs.addAll(merged);
+    }
+
+    private static File write(Iterator<LaunchConfiguration> configs) throws IOException {
+        File run = File.createTempFile("intellijtovscode-run", ".json");
+        try (JsonWriter out = new JsonWriter(Files.newBufferedWriter(run.toPath(), StandardCharsets.UTF_8))) {
+            out.beginArray();
+            while (configs.hasNext()) {
+                LaunchConfiguration config = configs.next();
+                // the shard folder is not part of the launch.json keys, so every record is [folder, config]
+                out.beginArray();
+                out.value(config.folder);
+                config.write(out);
+                out.endArray();
+            }
+            out.endArray();
+        } catch (IOException | RuntimeException e) {
+            run.delete();
+            throw e;
+        }
+        return run;
+    }
+
+    private static List<Run> open(List<File> files) {
+        List<Run> sources = new ArrayList<>();
+        try {
+            for (File file : files) {
+                sources.add(new Run(sources.size(), file));
+            }
+        } catch (IOException ioe) {
+            for (Run source : sources) {
+                source.closeQuietly();
+            }
+            throw new UncheckedIOException(ioe);
+        }
+        return sources;
+    }
+
+    private static long estimate(LaunchConfiguration config) {
+        long bytes = CONFIG_BYTES + estimate(config.name) + estimate(config.cwd) + estimate(config.mainClass)
+                + estimate(config.preLaunchTask);
+        if (config.args != null) {
+            bytes += LIST_BYTES + 4L * config.args.size();
+            for (String arg : config.args) {
+                bytes += estimate(arg);
+            }
+        }
+        if (config.extensions != null) {
+            bytes += EXTENSION_BYTES * config.extensions.size();
+        }
+        return bytes;
+    }
+
+    private static long estimate(String value) {
+        // pooled values are counted for every config sharing them, which errs on the side of spilling early
+        return value != null ? STRING_BYTES + value.length() : 0;
+    }
+
+    /**
+     * A spilled run being read back, with the config it will return next.
+     */
+    private static class Run {
+        final int index;
+        private final JsonReader in;
+        LaunchConfiguration head;
+
+        Run(int index, File file) throws IOException {
+            this.index = index;
+            // JsonReader buffers by itself, another buffer per open run would only add to the heap of the merge
+            in = new JsonReader(new InputStreamReader(Files.newInputStream(file.toPath()), StandardCharsets.UTF_8));
+            in.beginArray();
+        }
+
+        /**
+         * @return whether there is a new head
+         */
+        boolean advance() throws IOException {
+            if (!in.hasNext()) {
+                head = null;
+                return false;
+            }
+            in.beginArray();
+            String folder = null;
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+            } else {
+                folder = in.nextString();
+            }
+            head = LaunchConfiguration.read(in);
+            head.folder = folder;
+            in.endArray();
+            return true;
+        }
+
+        void close() throws IOException {
+            in.close();
+        }
+
+        void closeQuietly() {
+            try {
+                in.close();
+            } catch (IOException ioe) {
+                // only ever called while failing for another reason
+            }
+        }
+    }
+
+    private static class Merge implements Iterator<LaunchConfiguration> {
+        private final PriorityQueue<Run> heads;
+
+        Merge(Comparator<LaunchConfiguration> order, List<Run> runs) {
+            heads = new PriorityQueue<>(Comparator.comparing((Run run) -> run.head, order).thenComparingInt(run -> run.index));
+            try {
+                for (Run run : runs) {
+                    if (run.advance()) {
+                        heads.add(run);
+                    } else {
+                        run.close();
+                    }
+                }
+            } catch (IOException ioe) {
+                throw new UncheckedIOException(ioe);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public LaunchConfiguration next() {
+            Run run = heads.poll();
+            if (run == null) throw new NoSuchElementException();
+            LaunchConfiguration next = run.head;
+            try {
+                if (run.advance()) {
+                    heads.add(run);
+                } else {
+                    run.close();
+                }
+            } catch (IOException ioe) {
+                throw new UncheckedIOException(ioe);
+            }
+            return next;
+        }
+    }
+}
@@ -0,0 +1,685 @@
+package vscode;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.commons.io.FilenameUtils;
+
+import javax.xml.bind.JAXBException;
+
+import com.google.gson.JsonObject;
+
+import org.xml.sax.SAXException;
+
+import vscode.generated.Component;
+import vscode.generated.Component.Configuration.Method;
+import vscode.generated.Component.Configuration.Module;
+import vscode.generated.Component.Configuration.Option;
+
+/**
+ * Converts a folder of IntelliJ runConfigurations, and optionally the run configurations stored in
+ * .idea/workspace.xml, into a launch.json in the current working directory. Both may be read from a folder,
+ * a zip/jar archive or a git revision.
+ */
+class Converter {
+    // compiled output of a module for Maven, Gradle (java and kotlin) and Eclipse
+    private static final List<String> OUTPUT_FOLDERS = Arrays.asList("target/classes", "build/classes/java/main",
+            "build/classes/kotlin/main", "bin/main");
+
+    private String moduleNameOverride;
+    private boolean validate;
+    private boolean stats;
+    private boolean resolveModules;
+    private boolean verify;
+    private List<File> classpath = Collections.emptyList();
+    private String revision;
+    private boolean shard;
+    private long memoryBudget = Long.MAX_VALUE;
+    private XmlLimits xmlLimits = XmlLimits.DEFAULT;
+    private File indexDirectory;
+
+    // shares identical values (cwd, module names, args, ...) between all of the converted configs
+    private final ValuePool pool = new ValuePool();
+    private long heapWhileWriting;
+    private ConfigSorter configs;
+    private ModuleIndex moduleIndex;
+    private ClassIndex classIndex;
+    private final List<String> unresolved = new ArrayList<>();
+    private final BuildTasks buildTasks = new BuildTasks();
+    // before-launch steps without a vscode counterpart, with the number of configs using them
+    private final Map<String, Integer> unsupportedSteps = new TreeMap<>();
+    // the workspace configs that are not Applications, such as temporary JUnit runs, with their number per type
+    private final Map<String, Integer> otherTypes = new TreeMap<>();
+    private long parseNanos;
+    private int invalid;
+    // the configs of the file being indexed, they go into the index instead of being sorted and written
+    private List<LaunchConfiguration> indexed;
+
+    /**
+     * @param moduleNameOverride module name used for every config instead of its own, or null to keep them
+     */
+    Converter moduleNameOverride(String moduleNameOverride) {
+        this.moduleNameOverride = moduleNameOverride;
+        return this;
+    }
+
+    /**
+     * @param validate validates every run config against runConfig.xsd while it is parsed
+     */
+    Converter validate(boolean validate) {
+        this.validate = validate;
+        return this;
+    }
+
+    /**
+     * @param stats prints conversion statistics once launch.json is written
+     */
+    Converter stats(boolean stats) {
+        this.stats = stats;
+        return this;
+    }
+
+    /**
+     * @param resolveModules maps every IntelliJ module name onto its vscode java project name through the ModuleIndex
+     */
+    Converter resolveModules(boolean resolveModules) {
+        this.resolveModules = resolveModules;
+        return this;
+    }
+
+    /**
+     * @param verify checks that the main class of every config exists in the compiled output or dependency jars and
+     *               still has a main method
+     */
+    Converter verify(boolean verify) {
+        this.verify = verify;
+        return this;
+    }
+
+    /**
+     * @param classpath extra jars and class folders to verify main classes against, folders of jars add every jar in them
+     */
+    Converter classpath(List<File> classpath) {
+        this.classpath = classpath;
+        return this;
+    }
+
+    /**
+     * @param revision the git revision to read the run configurations at instead of the files on disk, or null
+     */
+    Converter revision(String revision) {
+        this.revision = revision;
+        return this;
+    }
+
+    /**
+     * @param shard writes one launch.json per module folder and a .code-workspace instead of a single launch.json
+     */
+    Converter shard(boolean shard) {
+        this.shard = shard;
+        return this;
+    }
+
+    /**
+     * @param memoryBudget estimated bytes of converted configs kept in memory, beyond which sorted runs are spilled to
+     *                     temporary files and merged while writing the output
+     */
+    Converter memoryBudget(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+        return this;
+    }
+
+    /**
+     * @param xmlLimits the size, depth and time every xml file is parsed within, files exceeding them are skipped
+     */
+    Converter xmlLimits(XmlLimits xmlLimits) {
+        this.xmlLimits = xmlLimits;
+        return this;
+    }
+
+    /**
+     * @param indexDirectory adds the configs to the RunConfigIndex in this folder instead of writing launch.json, or
+     *                       null to write launch.json
+     */
+    Converter index(File indexDirectory) {
+        this.indexDirectory = indexDirectory;
+        return this;
+    }
+
+    /**
+     * @param pathToRunConfigurations the runConfigurations folder (see Inputs for archives), or null to only read the
+     *                                workspace file
+     * @param pathToWorkspace the .idea/workspace.xml to extract run configurations from, or null to skip it
+     */
+    void convert(String pathToRunConfigurations, String pathToWorkspace) throws JAXBException, IOException, SAXException {
+        long start = System.nanoTime();
+
+        long indexNanos = 0;
+        long classIndexNanos = 0;
+        long retainedHeap = 0;
+        int pooledValues = 0;
+        File projectRoot;
+        try (Inputs inputs = new Inputs(revision, xmlLimits.maxBytes); ConfigSorter sorter = new ConfigSorter(memoryBudget,
+                shard ? LaunchShards.BY_FOLDER : ConfigSorter.BY_NAME)) {
+            configs = sorter;
+            // checks if the folder and workspace file exist
+            // if they don't exist, prints error and then exits
+            List<Inputs.Entry> runConfigs = Collections.emptyList();
+            if (pathToRunConfigurations != null) {
+                runConfigs = inputs.folder(pathToRunConfigurations);
+                if (runConfigs == null) {
+                    System.out.printf("\tRun Configs Folder '%s' Not Found%s", pathToRunConfigurations,
+                            System.lineSeparator());
+                    return;
+                }
+            }
+            Inputs.Entry workspace = null;
+            if (pathToWorkspace != null) {
+                workspace = inputs.file(pathToWorkspace);
+                if (workspace == null) {
+                    System.out.printf("\tWorkspace File '%s' Not Found%s", pathToWorkspace, System.lineSeparator());
+                    return;
+                }
+            }
+            // the module index, class folders and shards are all relative to the project folder, which an
+            // archive does not have, and falling back to the working directory would scan an unrelated project
+            boolean archive = pathToRunConfigurations != null && Inputs.inArchive(pathToRunConfigurations)
+                    || pathToWorkspace != null && Inputs.inArchive(pathToWorkspace);
+            if (archive && (resolveModules || verify || shard)) {
+                System.out.printf("\t--resolve-modules, --verify and --shard need a project folder, not an archive%s",
+                        System.lineSeparator());
+                return;
+            }
+            long indexStart = System.nanoTime();
+            projectRoot = Inputs.projectRoot(pathToRunConfigurations != null ? pathToRunConfigurations : pathToWorkspace);
+            if (resolveModules || verify || shard) {
+                moduleIndex = ModuleIndex.load(projectRoot, xmlLimits);
+            }
+            indexNanos = System.nanoTime() - indexStart;
+            long classIndexStart = System.nanoTime();
+            if (verify) {
+                classIndex = buildClassIndex(projectRoot);
+            }
+            classIndexNanos = System.nanoTime() - classIndexStart;
+            // the JAXBContext and schema are shared, so this is the only unmarshaller created for the run
+            RunConfigParser runConfigParser = new RunConfigParser(validate, xmlLimits);
+            if (indexDirectory != null) {
+                updateIndex(runConfigParser, projectRoot, pathToRunConfigurations, runConfigs, pathToWorkspace, workspace);
+                return;
+            }
+            parse(runConfigParser, runConfigs, workspace);
+
+            // sorts the configs so that they are in alphabetical order, one shard folder after the other when sharding
+            Iterable<LaunchConfiguration> sorted = configs.sorted();
+            // parsing is done, so the pool only holds on to values of spilled configs from here on
+            pooledValues = pool.size();
+            pool.clear();
+            if (stats) {
+                sorted = measuredHalfway(sorted);
+            }
+
+            if (shard) {
+                LaunchShards shards = new LaunchShards(projectRoot);
+                File codeWorkspace = shards.write(sorted, buildTasks);
+                System.out.printf("%d launch.json shards written (%d unchanged), open '%s' in vscode!%s", shards.written(),
+                        shards.unchanged(), codeWorkspace, System.lineSeparator());
+                if (shards.workspaceProblem() != null) {
+                    System.out.printf("\tLeft '%s' as it is, add the shard folders yourself: %s%s", codeWorkspace,
+                            shards.workspaceProblem(), System.lineSeparator());
+                }
+            } else {
+                // write launch.json file
+                try (BufferedWriter writer = new BufferedWriter(new FileWriter("launch.json"))) {
+                    LaunchConfiguration.writeLaunch(writer, sorted);
+                }
+                System.out.printf("launch.json created successfully in '%s'!%s", System.getProperty("user.dir"), System.lineSeparator());
+                // the preLaunchTask of the configs refer to the tasks in tasks.json
+                if (!buildTasks.isEmpty()) {
+                    writeTasks(new File("tasks.json"));
+                }
+            }
+            if (stats && heapWhileWriting > 0) {
+                // measured by dropping the configs rather than against a baseline taken before parsing, so whatever
+                // JAXB, Xerces and Gson initialize lazily on first use is in both readings and cancels out
+                configs.close();
+                retainedHeap = Math.max(0, heapWhileWriting - usedHeap());
+            }
+        }
+        for (String warning : unresolved) {
+            System.out.println(warning);
+        }
+        for (Map.Entry<String, Integer> step : unsupportedSteps.entrySet()) {
+            System.out.printf("\tUnsupported Before Launch Step '%s' in %d run configs%s", step.getKey(), step.getValue(),
+                    System.lineSeparator());
+        }
+        if (stats) {
+            System.out.printf("\tConverted %d run configs (%d invalid), validation %s%s", configs.size(), invalid,
+                    validate ? "on" : "off", System.lineSeparator());
+            if (!otherTypes.isEmpty()) {
+                System.out.printf("\tSkipped %d workspace run configs of other types than Application %s%s",
+                        otherTypes.values().stream().mapToInt(Integer::intValue).sum(), otherTypes, System.lineSeparator());
+            }
+            System.out.printf("\tParse time %.1f ms, total time %.1f ms%s", parseNanos / 1e6,
+                    (System.nanoTime() - start) / 1e6, System.lineSeparator());
+            if (moduleIndex != null) {
+                System.out.printf("\tModule index of %d modules %s in %.1f ms%s", moduleIndex.size(),
+                        moduleIndex.isCached() ? "read from cache" : "scanned", indexNanos / 1e6, System.lineSeparator());
+            }
+            if (classIndex != null) {
+                System.out.printf("\tClass index of %d classes from %d jars (%d cached) built in %.1f ms, %d unresolved main classes%s",
+                        classIndex.size(), classIndex.jars(), classIndex.cachedJars(), classIndexNanos / 1e6,
+                        unresolved.size(), System.lineSeparator());
+            }
+            System.out.printf("\tRetained heap %.1f KB for %d configs, %d pooled values shared %d times%s",
+                    retainedHeap / 1024.0, configs.size(), pooledValues, pool.shared(), System.lineSeparator());
+            if (configs.runs() > 0) {
+                System.out.printf("\tSorted in %d runs spilled to disk, merged in %d passes%s", configs.runs(),
+                        configs.passes(), System.lineSeparator());
+            }
+        }
+    }
+
+    /**
+     * Adds the build tasks to the user's tasks.json, keeping the tasks already in it, or creates it.
+     */
+    private void writeTasks(File file) throws IOException {
+        JsonObject existing;
+        try {
+            existing = LaunchConfiguration.readSettings(file);
+            if (!buildTasks.isMissingFrom(existing)) return;
+        } catch (IOException ioe) {
+            System.out.printf("\tLeft tasks.json as it is, add the '%s' task yourself: %s%s", BuildTasks.JAVA_BUILD,
+                    ioe.getMessage(), System.lineSeparator());
+            return;
+        }
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            buildTasks.writeTasks(writer, existing);
+        }
+        System.out.printf("tasks.json %s successfully in '%s'!%s", existing != null ? "updated" : "created",
+                System.getProperty("user.dir"), System.lineSeparator());
+    }
+
+    /**
+     * Parses every runConfigurations entry and the workspace file, converting each configuration as it is read.
+     */
+    private void parse(RunConfigParser runConfigParser, List<Inputs.Entry> runConfigs, Inputs.Entry workspace)
+            throws JAXBException, IOException, SAXException {
+        for (Inputs.Entry runConfig : runConfigs) {
+            if (!FilenameUtils.getExtension(runConfig.name()).equals("xml"))
+                continue;
+            parseRunConfig(runConfigParser, runConfig);
+        }
+        if (workspace != null) {
+            parseWorkspace(runConfigParser, workspace);
+        }
+    }
+
+    private void parseRunConfig(RunConfigParser runConfigParser, Inputs.Entry runConfig)
+            throws JAXBException, IOException, SAXException {
+        InputStream opened = open(runConfig, "Run Config");
+        if (opened == null) return;
+        try (InputStream adrFile = opened) {
+            // parses through the wrapper Component element, validating it in the same pass if requested
+            Component rootElement;
+            long parseStart = System.nanoTime();
+            try {
+                rootElement = runConfigParser.parse(adrFile);
+            } catch (XmlLimits.LimitException le) {
+                // a file over the limits is skipped whether validating or not, so it cannot stall the rest
+                System.out.printf("\tRejected Run Config '%s': %s%s", runConfig.name(), le.getMessage(),
+                        System.lineSeparator());
+                invalid++;
+                return;
+            } catch (SAXException se) {
+                if (!validate) throw se;
+                System.out.printf("\tInvalid Run Config '%s': %s%s", runConfig.name(), se.getMessage(),
+                        System.lineSeparator());
+                invalid++;
+                return;
+            } finally {
+                parseNanos += System.nanoTime() - parseStart;
+            }
+            // parses through the wrapper Configuration element
+            add(toLaunchConfig(rootElement.getConfiguration()));
+        }
+    }
+
+    private void parseWorkspace(RunConfigParser runConfigParser, Inputs.Entry workspace) throws IOException, SAXException {
+        InputStream opened = open(workspace, "Workspace");
+        if (opened == null) return;
+        try (InputStream workspaceFile = opened) {
+            // only the RunManager configurations are unmarshalled, they are converted as soon as each one ends
+            long parseStart = System.nanoTime();
+            try {
+                runConfigParser.parseWorkspace(workspaceFile, config -> {
+                    try {
+                        add(toLaunchConfig(config));
+                    } catch (IOException ioe) {
+                        throw new UncheckedIOException(ioe);
+                    }
+                }, new RunConfigParser.Skipped() {
+                    @Override
+                    public void invalid(String name, SAXException se) {
+                        // only that configuration is skipped, the rest of the workspace is still converted
+                        System.out.printf("\tInvalid Run Config '%s': %s%s", name, se.getMessage(),
+                                System.lineSeparator());
+                        invalid++;
+                    }
+
+                    @Override
+                    public void otherType(String name, String type) {
+                        otherTypes.merge(type, 1, Integer::sum);
+                    }
+                });
+            } catch (UncheckedIOException uioe) {
+                // a run failed to spill while the workspace was being read
+                throw uioe.getCause();
+            } catch (XmlLimits.LimitException le) {
+                System.out.printf("\tRejected Workspace '%s': %s%s", workspace.name(), le.getMessage(),
+                        System.lineSeparator());
+                invalid++;
+            } catch (SAXException se) {
+                if (!validate) throw se;
+                System.out.printf("\tInvalid Workspace '%s': %s%s", workspace.name(), se.getMessage(),
+                        System.lineSeparator());
+                invalid++;
+            } finally {
+                parseNanos += System.nanoTime() - parseStart;
+            }
+        }
+    }
+
+    /**
+     * Converts only the files whose content changed since they were last indexed, replaces their configs in the
+     * index and drops the files of the runConfigurations folder that no longer exist.
+     */
+    private void updateIndex(RunConfigParser runConfigParser, File projectRoot, String pathToRunConfigurations,
+            List<Inputs.Entry> runConfigs, String pathToWorkspace, Inputs.Entry workspace)
+            throws JAXBException, IOException, SAXException {
+        long start = System.nanoTime();
+        RunConfigIndex index = new RunConfigIndex(indexDirectory);
+        String project = projectRoot.getCanonicalPath();
+        Set<String> existing = new HashSet<>();
+        String options = conversionOptions();
+        int changed = 0;
+        int converted = 0;
+        String folder = pathToRunConfigurations != null
+                ? new File(pathToRunConfigurations).getCanonicalPath() + File.separator : null;
+        for (Inputs.Entry runConfig : runConfigs) {
+            if (!FilenameUtils.getExtension(runConfig.name()).equals("xml"))
+                continue;
+            String source = folder + runConfig.name();
+            String hash = hash(runConfig, "Run Config", options);
+            // a rejected file is left out of existing, so whatever was indexed from it before is removed
+            if (hash == null) continue;
+            existing.add(source);
+            if (index.isCurrent(source, hash)) continue;
+            indexed = new ArrayList<>();
+            parseRunConfig(runConfigParser, runConfig);
+            index.put(source, hash, project, indexed);
+            changed++;
+            converted += indexed.size();
+        }
+        if (workspace != null) {
+            String source = new File(pathToWorkspace).getCanonicalPath();
+            String hash = hash(workspace, "Workspace", options);
+            if (hash != null && !index.isCurrent(source, hash)) {
+                indexed = new ArrayList<>();
+                parseWorkspace(runConfigParser, workspace);
+                index.put(source, hash, project, indexed);
+                changed++;
+                converted += indexed.size();
+            }
+        }
+        indexed = null;
+        int removed = folder != null ? index.removeMissing(folder, existing) : 0;
+        index.save();
+        int files = existing.size() + (workspace != null ? 1 : 0);
+        System.out.printf("Indexed %d run configs from %d changed files (%d unchanged, %d removed) into '%s' in %.1f ms%s",
+                converted, changed, files - changed, removed, index.directory(), (System.nanoTime() - start) / 1e6,
+                System.lineSeparator());
+    }
+
+    /**
+     * @return the entry, or null when it is rejected for being larger than the xml size limit before it is read
+     */
+    private InputStream open(Inputs.Entry entry, String kind) throws IOException {
+        try {
+            return entry.open();
+        } catch (XmlLimits.TooLargeException tle) {
+            System.out.printf("\tRejected %s '%s': %s%s", kind, entry.name(), tle.getMessage(), System.lineSeparator());
+            invalid++;
+            return null;
+        }
+    }
+
+    /**
+     * @return what the converted configs depend on besides the content of their file, so a file indexed with other
+     *         options, or against a module index that changed since, counts as changed
+     */
+    private String conversionOptions() {
+        StringBuilder options = new StringBuilder();
+        options.append("validate=").append(validate).append('\n');
+        options.append("module=").append(moduleNameOverride).append('\n');
+        if (moduleNameOverride == null && resolveModules) {
+            options.append("modules=").append(moduleIndex.fingerprint()).append('\n');
+        }
+        return options.toString();
+    }
+
+    /**
+     * @param options the conversion options, hashed ahead of the content
+     * @return the SHA-1 of the options and the entry's content, read without parsing it, or null when the entry is
+     *         rejected for its size
+     */
+    private String hash(Inputs.Entry entry, String kind, String options) throws IOException {
+        InputStream opened = open(entry, kind);
+        if (opened == null) return null;
+        MessageDigest digest = Caches.digest("SHA-1");
+        digest.update(options.getBytes(StandardCharsets.UTF_8));
+        byte[] buffer = new byte[8192];
+        try (InputStream in = opened) {
+            for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+                digest.update(buffer, 0, n);
+            }
+        }
+        return Caches.hex(digest.digest());
+    }
+
+    private void add(LaunchConfiguration config) throws IOException {
+        if (indexed != null) {
+            indexed.add(config);
+            return;
+        }
+        int runs = configs.runs();
+        configs.add(config);
+        // the spilled configs were the only ones holding on to most pooled values
+        if (configs.runs() != runs) pool.clear();
+    }
+
+    /**
+     * @return the before-launch steps without a vscode counterpart, with the number of configs using them
+     */
+    Map<String, Integer> unsupportedSteps() {
+        return unsupportedSteps;
+    }
+
+    /**
+     * Maps a single IntelliJ run configuration onto a vscode java launch configuration.
+     */
+    LaunchConfiguration toLaunchConfig(Component.Configuration config) {
+        LaunchConfiguration javaLaunchConfig = new LaunchConfiguration();
+        javaLaunchConfig.name = config.getName();
+
+        String className = null;
+        String moduleName = null;
+        // a step listed several times still counts the config once
+        Set<String> unsupported = new HashSet<>();
+
+        // gets all the inner xml elements
+        for (Object obj : config.getOptionOrModuleOrMethod()) {
+            if (obj instanceof Option) {
+                Option option = (Option) obj;
+
+                String name = option.getName();
+                String value = option.getValue();
+                if (name.equals("WORKING_DIRECTORY")) {
+                    String cwd = value.replace("$PROJECT_DIR$", "${workspaceFolder}");
+                    if (cwd.lastIndexOf("/") == cwd.length() - 1) cwd = cwd.substring(0, cwd.length() - 1);
+                    javaLaunchConfig.cwd = pool.intern(cwd);
+                } else if (name.equals("MAIN_CLASS_NAME")) {
+                    className = value;
+                } else if (name.equals("PROGRAM_PARAMETERS")) {
+                    String[] args = value.split(" ");
+                    for (int i = 0; i < args.length; i++) {
+                        args[i] = pool.intern(args[i]);
+                    }
+                    javaLaunchConfig.args = Arrays.asList(args);
+                }
+            } else if (obj instanceof Module) {
+                Module module = (Module) obj;
+
+                moduleName = module.getName();
+            } else if (obj instanceof Method) {
+                // identical steps map onto the same shared task, so a config runs it once however often it is listed
+                for (Method.Option step : ((Method) obj).getOption()) {
+                    if (!Boolean.TRUE.equals(step.isEnabled()) || step.getName() == null) continue;
+                    String task = buildTasks.taskFor(step.getName());
+                    if (task != null) {
+                        javaLaunchConfig.preLaunchTask = task;
+                    } else {
+                        unsupported.add(step.getName());
+                    }
+                }
+            }
+        }
+        for (String step : unsupported) {
+            unsupportedSteps.merge(step, 1, Integer::sum);
+        }
+
+        // the shard follows the module the config runs in, even when the written module name is overridden
+        if (shard && moduleName != null) {
+            ModuleIndex.Entry entry = moduleIndex.entry(moduleName);
+            // a module outside the project root stays in the root shard
+            String folder = entry != null ? LaunchShards.shardFolder(entry.directory) : null;
+            if (folder != null) javaLaunchConfig.folder = pool.intern(folder);
+        }
+        // overwrites the moduleName if that setting is set, otherwise resolves it to the project name vscode uses
+        if (moduleNameOverride != null) {
+            moduleName = moduleNameOverride;
+        } else if (resolveModules && moduleName != null) {
+            moduleName = moduleIndex.projectName(moduleName);
+        }
+        if (classIndex != null && className != null) {
+            verifyMainClass(config.getName(), className);
+        }
+        if (className != null && moduleName != null) {
+            javaLaunchConfig.mainClass = pool.intern(String.join("/", moduleName, className));
+        } else if (className != null) {
+            javaLaunchConfig.mainClass = pool.intern(className);
+        }
+        return javaLaunchConfig;
+    }
+
+    private void verifyMainClass(String configName, String className) {
+        String problem;
+        try {
+            problem = classIndex.verifyMain(className);
+        } catch (IOException ioe) {
+            problem = ioe.getMessage();
+        }
+        if (problem != null) {
+            unresolved.add(String.format("\tUnresolved Main Class '%s' in '%s': %s", className, configName, problem));
+        }
+    }
+
+    /**
+     * Indexes the Maven, Gradle and IntelliJ output folders and the copied dependencies of every module,
+     * followed by the extra classpath entries.
+     */
+    private ClassIndex buildClassIndex(File projectRoot) {
+        List<File> classFolders = new ArrayList<>();
+        List<File> jars = new ArrayList<>();
+        for (String directory : moduleIndex.directories()) {
+            File module = new File(projectRoot, directory);
+            for (String output : OUTPUT_FOLDERS) {
+                File folder = new File(module, output);
+                if (folder.isDirectory()) classFolders.add(folder);
+            }
+            addJars(new File(module, "target/dependency"), jars);
+        }
+        File[] intellijOutput = new File(projectRoot, "out/production").listFiles(File::isDirectory);
+        if (intellijOutput != null) classFolders.addAll(Arrays.asList(intellijOutput));
+        for (File entry : classpath) {
+            if (entry.isFile()) {
+                jars.add(entry);
+            } else if (!addJars(entry, jars)) {
+                classFolders.add(entry);
+            }
+        }
+        return ClassIndex.build(classFolders, jars);
+    }
+
+    /**
+     * @return whether the folder contained any jars
+     */
+    private static boolean addJars(File folder, List<File> jars) {
+        File[] found = folder.listFiles((dir, name) -> name.endsWith(".jar"));
+        if (found == null || found.length == 0) return false;
+        jars.addAll(Arrays.asList(found));
+        return true;
+    }
+
+    /**
+     * Reads the used heap once half of the configs have been written, when the configs in memory or the runs being
+     * merged are held the same as at any other point of writing.
+     */
+    private Iterable<LaunchConfiguration> measuredHalfway(Iterable<LaunchConfiguration> sorted) {
+        int halfway = configs.size() / 2;
+        return () -> new Iterator<LaunchConfiguration>() {
+            private final Iterator<LaunchConfiguration> iterator = sorted.iterator();
+            private int returned;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public LaunchConfiguration next() {
+                if (returned++ == halfway) {
+                    heapWhileWriting = usedHeap();
+                }
+                return iterator.next();
+            }
+        };
+    }
+
+    /**
+     * Collects garbage and returns the heap in use, so the difference between two calls approximates retained memory.
+     */
+    private static long usedHeap() {
+        // the serial collector reports what a collection freed only after the next one, so it collects twice
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,607 @@
+package vscode;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Reads trees and blobs straight out of a local .git folder, from loose objects and pack files, so run configurations
+ * can be converted at any revision without a checkout or temporary files.
+ *
+ * Revisions are full or abbreviated object ids, HEAD, or branch, tag and remote names, optionally followed by
+ * ~n and ^n ancestry suffixes.
+ */
+class GitRepository {
+    private static final int COMMIT = 1;
+    private static final int TREE = 2;
+    private static final int BLOB = 3;
+    private static final int TAG = 4;
+    private static final int OFS_DELTA = 6;
+    private static final int REF_DELTA = 7;
+    // longest delta chain git itself creates is 50 by default, anything far longer is a corrupt pack
+    private static final int MAX_DELTA_DEPTH = 4096;
+    private static final Pattern ANCESTRY = Pattern.compile("([~^]\\d*)+$");
+    private static final Pattern STEP = Pattern.compile("([~^])(\\d*)");
+
+    private final File workTree;
+    // holds HEAD, which differs from the common folder in linked worktrees
+    private final File gitDir;
+    // holds objects, refs and packed-refs
+    private final File commonDir;
+    private List<Pack> packs;
+
+    private GitRepository(File workTree, File gitDir, File commonDir) {
+        this.workTree = workTree;
+        this.gitDir = gitDir;
+        this.commonDir = commonDir;
+    }
+
+    /**
+     * Finds the repository containing the given file or folder, walking up like git does.
+     *
+     * @return the repository, or null when the path is not inside one
+     */
+    static GitRepository find(File start) throws IOException {
+        for (File dir = start.getAbsoluteFile(); dir != null; dir = dir.getParentFile()) {
+            File dotGit = new File(dir, ".git");
+            File gitDir = null;
+            if (dotGit.isDirectory()) {
+                gitDir = dotGit;
+            } else if (dotGit.isFile()) {
+                // linked worktrees and submodules point at their git folder from a .git file
+                String content = read(dotGit).trim();
+                if (content.startsWith("gitdir:")) {
+                    gitDir = new File(content.substring("gitdir:".length()).trim());
+                    if (!gitDir.isAbsolute()) gitDir = new File(dir, gitDir.getPath());
+                }
+            }
+            if (gitDir != null) {
+                File commonDir = gitDir;
+                File common = new File(gitDir, "commondir");
+                if (common.isFile()) {
+                    commonDir = new File(read(common).trim());
+                    if (!commonDir.isAbsolute()) commonDir = new File(gitDir, commonDir.getPath());
+                }
+                return new GitRepository(dir, gitDir.getCanonicalFile(), commonDir.getCanonicalFile());
+            }
+        }
+        return null;
+    }
+
+    File workTree() {
+        return workTree;
+    }
+
+    /**
+     * @return the path of the file relative to the work tree, with forward slashes
+     */
+    String relativize(File file) throws IOException {
+        String relative = workTree.getCanonicalFile().toPath().relativize(file.getCanonicalFile().toPath()).toString();
+        return relative.replace(File.separatorChar, '/');
+    }
+
+    /**
+     * @return the id of the commit the revision points at
+     */
+    String resolve(String revision) throws IOException {
+        // ancestry suffixes such as main~2 or HEAD^ are applied after the name itself is resolved
+        Matcher suffixes = ANCESTRY.matcher(revision);
+        int nameEnd = suffixes.find() ? suffixes.start() : revision.length();
+        String id = resolveRef(revision.substring(0, nameEnd), 0);
+        if (id == null) throw new IOException("unknown revision '" + revision + "'");
+        id = peel(id);
+        for (Matcher step = STEP.matcher(revision.substring(nameEnd)); step.find(); ) {
+            int count = step.group(2).isEmpty() ? 1 : Integer.parseInt(step.group(2));
+            if (step.group(1).equals("~")) {
+                for (int i = 0; i < count; i++) id = parent(id, 1, revision);
+            } else if (count > 0) {
+                id = parent(id, count, revision);
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Peels annotated tags down to the commit they tag.
+     */
+    private String peel(String id) throws IOException {
+        for (GitObject object = read(id, 0); object.type == TAG; object = read(id, 0)) {
+            id = header(object, "object");
+        }
+        return id;
+    }
+
+    private String parent(String commit, int number, String revision) throws IOException {
+        int found = 0;
+        for (String line : new String(read(commit, COMMIT).data, StandardCharsets.UTF_8).split("\n")) {
+            if (line.isEmpty()) break;
+            if (line.startsWith("parent ") && ++found == number) return line.substring("parent ".length()).trim();
+        }
+        throw new IOException("unknown revision '" + revision + "'");
+    }
+
+    /**
+     * Lists the blobs directly inside a folder of the revision.
+     *
+     * @return file name -> blob id in tree order, or null when the folder does not exist
+     */
+    Map<String, String> list(String commit, String folder) throws IOException {
+        String tree = header(read(commit, COMMIT), "tree");
+        if (!folder.isEmpty()) {
+            for (String name : folder.split("/")) {
+                if (name.isEmpty()) continue;
+                Map<String, String[]> entries = treeEntries(tree);
+                String[] entry = entries.get(name);
+                if (entry == null || !entry[0].equals("40000")) return null;
+                tree = entry[1];
+            }
+        }
+        Map<String, String> blobs = new LinkedHashMap<>();
+        for (Map.Entry<String, String[]> entry : treeEntries(tree).entrySet()) {
+            // regular and executable files only, not folders, symlinks or submodules
+            if (entry.getValue()[0].startsWith("100")) blobs.put(entry.getKey(), entry.getValue()[1]);
+        }
+        return blobs;
+    }
+
+    /**
+     * @return the blob id of the file in the revision, or null when it does not exist
+     */
+    String find(String commit, String path) throws IOException {
+        int slash = path.lastIndexOf('/');
+        Map<String, String> blobs = list(commit, slash < 0 ? "" : path.substring(0, slash));
+        return blobs != null ? blobs.get(path.substring(slash + 1)) : null;
+    }
+
+    /**
+     * @return the content of the blob, or null when it is larger than maxBytes, which is known from the object
+     *         headers before anything is inflated
+     */
+    byte[] blob(String id, long maxBytes) throws IOException {
+        try {
+            return read(id, BLOB, maxBytes).data;
+        } catch (TooLargeException tle) {
+            return null;
+        }
+    }
+
+    private Map<String, String[]> treeEntries(String id) throws IOException {
+        byte[] data = read(id, TREE).data;
+        Map<String, String[]> entries = new LinkedHashMap<>();
+        // every entry is "<mode> <name>\0" followed by the 20 byte object id
+        for (int i = 0; i < data.length; ) {
+            int space = indexOf(data, (byte) ' ', i);
+            int nul = indexOf(data, (byte) 0, space);
+            String mode = new String(data, i, space - i, StandardCharsets.US_ASCII);
+            String name = new String(data, space + 1, nul - space - 1, StandardCharsets.UTF_8);
+            entries.put(name, new String[] { mode, Caches.hex(Arrays.copyOfRange(data, nul + 1, nul + 21)) });
+            i = nul + 21;
+        }
+        return entries;
+    }
+
+    private String resolveRef(String revision, int depth) throws IOException {
+        if (depth > 10) throw new IOException("symbolic ref loop at '" + revision + "'");
+        if (revision.matches("[0-9a-f]{40}")) return revision;
+        List<String> candidates = new ArrayList<>();
+        // like git, only pseudo refs such as HEAD are looked up directly in the git folder
+        if (revision.matches("[A-Z_]+") || revision.startsWith("refs/")) candidates.add(revision);
+        candidates.addAll(Arrays.asList("refs/" + revision, "refs/tags/" + revision, "refs/heads/" + revision,
+                "refs/remotes/" + revision, "refs/remotes/" + revision + "/HEAD"));
+        for (String candidate : candidates) {
+            File ref = new File(candidate.startsWith("refs/") ? commonDir : gitDir, candidate);
+            if (ref.isFile()) {
+                String content = read(ref).trim();
+                return content.startsWith("ref:") ? resolveRef(content.substring("ref:".length()).trim(), depth + 1) : content;
+            }
+            String packed = packedRef(candidate);
+            if (packed != null) return packed;
+        }
+        if (revision.matches("[0-9a-f]{4,39}")) return abbreviated(revision);
+        return null;
+    }
+
+    private String packedRef(String name) throws IOException {
+        File packedRefs = new File(commonDir, "packed-refs");
+        if (!packedRefs.isFile()) return null;
+        for (String line : read(packedRefs).split("\n")) {
+            if (line.startsWith("#") || line.startsWith("^")) continue;
+            int space = line.indexOf(' ');
+            if (space > 0 && line.substring(space + 1).trim().equals(name)) return line.substring(0, space);
+        }
+        return null;
+    }
+
+    private String abbreviated(String prefix) throws IOException {
+        List<String> matches = new ArrayList<>();
+        File[] loose = new File(commonDir, "objects/" + prefix.substring(0, 2)).listFiles();
+        if (loose != null) {
+            for (File object : loose) {
+                String id = prefix.substring(0, 2) + object.getName();
+                if (id.startsWith(prefix)) matches.add(id);
+            }
+        }
+        for (Pack pack : packs()) {
+            pack.findPrefix(prefix, matches);
+        }
+        if (matches.size() > 1 && matches.stream().distinct().count() > 1) {
+            throw new IOException("ambiguous revision '" + prefix + "'");
+        }
+        return matches.isEmpty() ? null : matches.get(0);
+    }
+
+    private static String header(GitObject object, String key) throws IOException {
+        for (String line : new String(object.data, StandardCharsets.UTF_8).split("\n")) {
+            if (line.isEmpty()) break;
+            if (line.startsWith(key + " ")) return line.substring(key.length() + 1).trim();
+        }
+        throw new IOException("object has no " + key + " header");
+    }
+
+    private GitObject read(String id, int expectedType) throws IOException {
+        return read(id, expectedType, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param expectedType the type the object must have, or 0 for any
+     * @param maxBytes     the largest object, and delta base, read
+     * @throws TooLargeException when the object is larger than maxBytes
+     */
+    private GitObject read(String id, int expectedType, long maxBytes) throws IOException {
+        return read(id, expectedType, maxBytes, 0);
+    }
+
+    /**
+     * @param depth the number of deltas already on the way to this object, which a delta chain through object ids
+     *              counts as well
+     */
+    private GitObject read(String id, int expectedType, long maxBytes, int depth) throws IOException {
+        GitObject object = readLoose(id, maxBytes);
+        if (object == null) {
+            for (Pack pack : packs()) {
+                long offset = pack.offset(id);
+                if (offset >= 0) {
+                    object = pack.read(offset, depth, maxBytes);
+                    break;
+                }
+            }
+        }
+        if (object == null) throw new IOException("object " + id + " not found");
+        if (expectedType != 0 && object.type != expectedType) {
+            throw new IOException("object " + id + " is not a " + typeName(expectedType));
+        }
+        return object;
+    }
+
+    private GitObject readLoose(String id, long maxBytes) throws IOException {
+        File file = new File(commonDir, "objects/" + id.substring(0, 2) + "/" + id.substring(2));
+        if (!file.isFile()) return null;
+        try (InputStream in = new InflaterInputStream(new FileInputStream(file))) {
+            // a loose object is "<type> <size>\0<data>", the header is read on its own so the size is checked first
+            StringBuilder header = new StringBuilder();
+            for (int c = in.read(); c != 0; c = in.read()) {
+                if (c < 0 || header.length() > 32) throw new IOException("malformed git object");
+                header.append((char) c);
+            }
+            int space = header.indexOf(" ");
+            if (space < 0) throw new IOException("malformed git object");
+            long size;
+            try {
+                size = Long.parseLong(header.substring(space + 1));
+            } catch (NumberFormatException nfe) {
+                throw new IOException("malformed git object");
+            }
+            checkSize(size, maxBytes);
+            byte[] data = new byte[(int) size];
+            int read = 0;
+            for (int n; read < data.length && (n = in.read(data, read, data.length - read)) > 0; ) {
+                read += n;
+            }
+            if (read != data.length) throw new IOException("truncated git object");
+            return new GitObject(typeOf(header.substring(0, space)), data);
+        }
+    }
+
+    private static void checkSize(long size, long maxBytes) throws IOException {
+        if (size > maxBytes) throw new TooLargeException();
+        if (size > Integer.MAX_VALUE) throw new IOException("git object too large");
+    }
+
+    private synchronized List<Pack> packs() throws IOException {
+        if (packs == null) {
+            packs = new ArrayList<>();
+            File[] idxs = new File(commonDir, "objects/pack").listFiles((dir, name) -> name.endsWith(".idx"));
+            if (idxs != null) {
+                for (File idx : idxs) {
+                    File pack = new File(idx.getPath().substring(0, idx.getPath().length() - ".idx".length()) + ".pack");
+                    if (pack.isFile()) packs.add(new Pack(idx, pack));
+                }
+            }
+        }
+        return packs;
+    }
+
+    private static int typeOf(String type) throws IOException {
+        switch (type) {
+            case "commit": return COMMIT;
+            case "tree": return TREE;
+            case "blob": return BLOB;
+            case "tag": return TAG;
+            default: throw new IOException("unknown object type " + type);
+        }
+    }
+
+    private static String typeName(int type) {
+        switch (type) {
+            case COMMIT: return "commit";
+            case TREE: return "tree";
+            case BLOB: return "blob";
+            default: return "tag";
+        }
+    }
+
+    private static int indexOf(byte[] data, byte value, int from) throws IOException {
+        for (int i = from; i < data.length; i++) {
+            if (data[i] == value) return i;
+        }
+        throw new IOException("malformed git object");
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+    private static class GitObject {
+        final int type;
+        final byte[] data;
+
+        GitObject(int type, byte[] data) {
+            this.type = type;
+            this.data = data;
+        }
+    }
+
+    private static class TooLargeException extends IOException {
+    }
+
+    /**
+     * A pack file with its version 2 index, which is read into memory the first time the pack is searched.
+     */
+    private class Pack {
+        private final File idxFile;
+        private final File packFile;
+        private byte[] idx;
+        private int count;
+
+        Pack(File idxFile, File packFile) {
+            this.idxFile = idxFile;
+            this.packFile = packFile;
+        }
+
+        private synchronized byte[] idx() throws IOException {
+            if (idx == null) {
+                idx = Files.readAllBytes(idxFile.toPath());
+                if (idx.length < 8 + 256 * 4 || readInt(idx, 0) != 0xff744f63 || readInt(idx, 4) != 2) {
+                    throw new IOException(idxFile + " is not a version 2 pack index");
+                }
+                count = readInt(idx, 8 + 255 * 4);
+            }
+            return idx;
+        }
+
+        /**
+         * @return the offset of the object in the pack, or -1 when the pack does not contain it
+         */
+        long offset(String id) throws IOException {
+            byte[] idx = idx();
+            byte[] sha = unhex(id);
+            int first = sha[0] & 0xff;
+            // the fan-out table holds the number of objects whose first byte is <= i
+            int low = first == 0 ? 0 : readInt(idx, 8 + (first - 1) * 4);
+            int high = readInt(idx, 8 + first * 4) - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = compare(idx, 8 + 256 * 4 + mid * 20, sha);
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return objectOffset(mid);
+                }
+            }
+            return -1;
+        }
+
+        void findPrefix(String prefix, List<String> matches) throws IOException {
+            byte[] idx = idx();
+            for (int i = 0; i < count; i++) {
+                String id = Caches.hex(Arrays.copyOfRange(idx, 8 + 256 * 4 + i * 20, 8 + 256 * 4 + i * 20 + 20));
+                if (id.startsWith(prefix)) matches.add(id);
+            }
+        }
+
+        private long objectOffset(int position) {
+            int offsets = 8 + 256 * 4 + count * 24;
+            long offset = readInt(idx, offsets + position * 4) & 0xffffffffL;
+            if ((offset & 0x80000000L) != 0) {
+                // large packs keep offsets past 2GB in a separate table of 8 byte entries
+                int large = offsets + count * 4 + (int) (offset & 0x7fffffffL) * 8;
+                offset = ((long) readInt(idx, large) << 32) | (readInt(idx, large + 4) & 0xffffffffL);
+            }
+            return offset;
+        }
+
+        GitObject read(long offset, int depth, long maxBytes) throws IOException {
+            if (depth > MAX_DELTA_DEPTH) throw new IOException("delta chain too long in " + packFile);
+            int type;
+            long size;
+            long baseOffset = -1;
+            String baseId = null;
+            long dataOffset;
+            try (RandomAccessFile file = new RandomAccessFile(packFile, "r")) {
+                file.seek(offset);
+                int c = file.readUnsignedByte();
+                type = (c >> 4) & 7;
+                size = c & 0x0f;
+                for (int shift = 4; (c & 0x80) != 0; shift += 7) {
+                    if (shift > 56) throw new IOException("corrupt pack file " + packFile);
+                    c = file.readUnsignedByte();
+                    size |= (long) (c & 0x7f) << shift;
+                }
+                // the size of a delta is that of its instructions, which is checked as well before it is inflated
+                checkSize(size, maxBytes);
+                if (type == OFS_DELTA) {
+                    c = file.readUnsignedByte();
+                    long distance = c & 0x7f;
+                    while ((c & 0x80) != 0) {
+                        c = file.readUnsignedByte();
+                        distance = ((distance + 1) << 7) | (c & 0x7f);
+                    }
+                    baseOffset = offset - distance;
+                    if (distance <= 0 || baseOffset < 0) throw new IOException("corrupt pack file " + packFile);
+                } else if (type == REF_DELTA) {
+                    byte[] id = new byte[20];
+                    file.readFully(id);
+                    baseId = Caches.hex(id);
+                } else {
+                    return new GitObject(type, inflate(file, size));
+                }
+                dataOffset = file.getFilePointer();
+            }
+            // the base is read with this file closed, so a delta chain keeps no more than one file open at a time
+            GitObject base = baseId == null ? read(baseOffset, depth + 1, maxBytes)
+                    : GitRepository.this.read(baseId, 0, maxBytes, depth + 1);
+            byte[] delta;
+            try (RandomAccessFile file = new RandomAccessFile(packFile, "r")) {
+                file.seek(dataOffset);
+                delta = inflate(file, size);
+            }
+            return new GitObject(base.type, applyDelta(base.data, delta, maxBytes));
+        }
+    }
+
+    private static byte[] inflate(RandomAccessFile file, long size) throws IOException {
+        byte[] out = new byte[(int) size];
+        byte[] in = new byte[8192];
+        Inflater inflater = new Inflater();
+        try {
+            int produced = 0;
+            while (produced < out.length) {
+                if (inflater.needsInput()) {
+                    int read = file.read(in);
+                    if (read < 0) throw new IOException("truncated pack file");
+                    inflater.setInput(in, 0, read);
+                }
+                int inflated = inflater.inflate(out, produced, out.length - produced);
+                if (inflated == 0 && (inflater.finished() || inflater.needsDictionary())) {
+                    throw new IOException("corrupt pack file");
+                }
+                produced += inflated;
+            }
+            return out;
+        } catch (DataFormatException dfe) {
+            throw new IOException(dfe);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Rebuilds an object from its delta base: the delta is the two object sizes followed by copy and insert instructions.
+     * Every instruction is checked against the base, the delta and the result, since a pack may be corrupt or crafted.
+     */
+    static byte[] applyDelta(byte[] base, byte[] delta, long maxBytes) throws IOException {
+        int[] position = { 0 };
+        long baseSize = readVarint(delta, position);
+        if (baseSize != base.length) throw new IOException("delta base size mismatch");
+        long resultSize = readVarint(delta, position);
+        checkSize(resultSize, maxBytes);
+        byte[] result = new byte[(int) resultSize];
+        int written = 0;
+        int i = position[0];
+        while (i < delta.length) {
+            int cmd = delta[i++] & 0xff;
+            if ((cmd & 0x80) != 0) {
+                long offset = 0;
+                int size = 0;
+                for (int bit = 0; bit < 4; bit++) {
+                    if ((cmd & (1 << bit)) != 0) offset |= (long) (deltaByte(delta, i++)) << (8 * bit);
+                }
+                for (int bit = 0; bit < 3; bit++) {
+                    if ((cmd & (0x10 << bit)) != 0) size |= deltaByte(delta, i++) << (8 * bit);
+                }
+                if (size == 0) size = 0x10000;
+                if (offset + size > base.length || written + size > result.length) {
+                    throw new IOException("delta copies past its base or result");
+                }
+                System.arraycopy(base, (int) offset, result, written, size);
+                written += size;
+            } else if (cmd != 0) {
+                if (i + cmd > delta.length || written + cmd > result.length) {
+                    throw new IOException("delta inserts past its end or result");
+                }
+                System.arraycopy(delta, i, result, written, cmd);
+                i += cmd;
+                written += cmd;
+            } else {
+                throw new IOException("invalid delta instruction");
+            }
+        }
+        if (written != result.length) throw new IOException("delta result size mismatch");
+        return result;
+    }
+
+    private static int deltaByte(byte[] delta, int position) throws IOException {
+        if (position >= delta.length) throw new IOException("truncated delta");
+        return delta[position] & 0xff;
+    }
+
+    private static long readVarint(byte[] data, int[] position) throws IOException {
+        long value = 0;
+        int shift = 0;
+        int c;
+        do {
+            if (shift > 56) throw new IOException("corrupt delta size");
+            c = deltaByte(data, position[0]++);
+            value |= (long) (c & 0x7f) << shift;
+            shift += 7;
+        } while ((c & 0x80) != 0);
+        return value;
+    }
+
+    private static int readInt(byte[] data, int offset) {
+        return ((data[offset] & 0xff) << 24) | ((data[offset + 1] & 0xff) << 16)
+                | ((data[offset + 2] & 0xff) << 8) | (data[offset + 3] & 0xff);
+    }
+
+    private static int compare(byte[] data, int offset, byte[] sha) {
+        for (int i = 0; i < 20; i++) {
+            int cmp = (data[offset + i] & 0xff) - (sha[i] & 0xff);
+            if (cmp != 0) return cmp;
+        }
+        return 0;
+    }
+
+    private static byte[] unhex(String id) {
+        byte[] bytes = new byte[id.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(id.substring(2 * i, 2 * i + 2), 16);
+        }
+        return bytes;
+    }
+}
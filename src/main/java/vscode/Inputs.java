@@ -0,0 +1,204 @@
+package vscode;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Resolves the runConfigurations folder and workspace file arguments into xml entries, whether they live in a folder,
+ * inside a zip or jar archive, or at a git revision.
+ *
+ * Archives are opened as a zip FileSystem and git blobs are read straight from the object database, so every entry
+ * streams into the parser without anything being extracted to disk. Paths inside an archive are written
+ * archive.zip!/path/inside, and an archive given without a path is searched for its .idea/runConfigurations folder.
+ */
+class Inputs implements Closeable {
+
+    /**
+     * A single xml file to parse.
+     */
+    interface Entry {
+        String name();
+
+        InputStream open() throws IOException;
+    }
+
+    private static final String ARCHIVE_SEPARATOR = "!/";
+
+    private final String revision;
+    private final long maxBytes;
+    private final List<FileSystem> archives = new ArrayList<>();
+
+    /**
+     * @param revision the git revision every path is read at, or null to read the paths as they are
+     */
+    Inputs(String revision) {
+        this(revision, XmlLimits.DEFAULT.maxBytes);
+    }
+
+    /**
+     * @param maxBytes the largest git blob read into memory, larger ones fail to open with a TooLargeException
+     */
+    Inputs(String revision, long maxBytes) {
+        this.revision = revision;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return the files directly inside the folder, or null when the folder does not exist
+     */
+    List<Entry> folder(String path) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        if (revision != null) {
+            GitRepository repository = repository(path);
+            Map<String, String> blobs = repository.list(repository.resolve(revision), repository.relativize(new File(path)));
+            if (blobs == null) return null;
+            for (Map.Entry<String, String> blob : blobs.entrySet()) {
+                entries.add(blobEntry(repository, blob.getKey(), blob.getValue()));
+            }
+            return entries;
+        }
+        Path folder = resolve(path, true);
+        if (folder == null || !Files.isDirectory(folder)) return null;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(folder)) {
+            for (Path file : files) {
+                if (Files.isRegularFile(file)) entries.add(pathEntry(file));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * @return the file, or null when it does not exist
+     */
+    Entry file(String path) throws IOException {
+        if (revision != null) {
+            GitRepository repository = repository(path);
+            String id = repository.find(repository.resolve(revision), repository.relativize(new File(path)));
+            return id != null ? blobEntry(repository, new File(path).getName(), id) : null;
+        }
+        Path file = resolve(path, false);
+        return file != null && Files.isRegularFile(file) ? pathEntry(file) : null;
+    }
+
+    /**
+     * @return whether the path is an archive or inside one, in which case there is no project folder to scan or
+     *         write into
+     */
+    static boolean inArchive(String path) {
+        return path.contains(ARCHIVE_SEPARATOR) || isArchive(new File(path));
+    }
+
+    /**
+     * @return the folder holding the .idea folder the path points into, or the current working directory when the
+     *         path is inside an archive or not inside an .idea folder
+     */
+    static File projectRoot(String path) {
+        if (inArchive(path)) {
+            return new File(System.getProperty("user.dir"));
+        }
+        File idea = new File(path).getAbsoluteFile().getParentFile();
+        if (idea != null && idea.getName().equals(".idea") && idea.getParentFile() != null) {
+            return idea.getParentFile();
+        }
+        return new File(System.getProperty("user.dir"));
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (FileSystem archive : archives) {
+            archive.close();
+        }
+    }
+
+    private Path resolve(String path, boolean findRunConfigurations) throws IOException {
+        int separator = path.indexOf(ARCHIVE_SEPARATOR);
+        File archive = new File(separator >= 0 ? path.substring(0, separator) : path);
+        if (separator < 0 && !isArchive(archive)) {
+            return Paths.get(path);
+        }
+        if (!archive.isFile()) return null;
+        FileSystem zip = FileSystems.newFileSystem(archive.toPath(), (ClassLoader) null);
+        archives.add(zip);
+        Path root = zip.getPath("/");
+        if (separator >= 0) {
+            return root.resolve(path.substring(separator + ARCHIVE_SEPARATOR.length()));
+        }
+        return findRunConfigurations ? findRunConfigurations(root) : root;
+    }
+
+    /**
+     * @return the shallowest .idea/runConfigurations folder in the archive, or null when it has none
+     */
+    private static Path findRunConfigurations(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            Optional<Path> found = paths
+                    .filter(p -> p.getFileName() != null && p.getParent() != null && p.getParent().getFileName() != null)
+                    .filter(p -> stripSlash(p.getFileName()).equals("runConfigurations")
+                            && stripSlash(p.getParent().getFileName()).equals(".idea"))
+                    .filter(Files::isDirectory)
+                    .min(Comparator.comparingInt(Path::getNameCount));
+            return found.orElse(null);
+        }
+    }
+
+    private static String stripSlash(Path name) {
+        String value = name.toString();
+        return value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+    }
+
+    private static boolean isArchive(File file) {
+        String name = file.getName().toLowerCase();
+        return file.isFile() && (name.endsWith(".zip") || name.endsWith(".jar"));
+    }
+
+    private static GitRepository repository(String path) throws IOException {
+        GitRepository repository = GitRepository.find(new File(path));
+        if (repository == null) throw new IOException("'" + path + "' is not inside a git repository");
+        return repository;
+    }
+
+    private static Entry pathEntry(Path file) {
+        return new Entry() {
+            @Override
+            public String name() {
+                return stripSlash(file.getFileName());
+            }
+
+            @Override
+            public InputStream open() throws IOException {
+                return Files.newInputStream(file);
+            }
+        };
+    }
+
+    private Entry blobEntry(GitRepository repository, String name, String id) {
+        return new Entry() {
+            @Override
+            public String name() {
+                return name;
+            }
+
+            @Override
+            public InputStream open() throws IOException {
+                byte[] data = repository.blob(id, maxBytes);
+                if (data == null) throw new XmlLimits.TooLargeException(maxBytes);
+                return new ByteArrayInputStream(data);
+            }
+        };
+    }
+}
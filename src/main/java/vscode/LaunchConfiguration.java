@@ -0,0 +1,194 @@
+package vscode;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * A vscode java launch configuration with a fixed field for every key the converter writes.
+ *
+ * It is serialized by hand in the order vscode launch configurations are typically sorted in (type, name, request,
+ * cwd, mainClass, args, preLaunchTask, followed by any extensions), so no map, sorting or reflection is needed per config.
+ */
+class LaunchConfiguration {
+    static final String TYPE = "java";
+    static final String REQUEST = "launch";
+    static final String VERSION = "0.2.0";
+
+    String name;
+    String cwd;
+    String mainClass;
+    List<String> args;
+    String preLaunchTask;
+    // folder of the config's module relative to the project root, only used to pick its shard and never written
+    String folder;
+    // keys without a fixed field, written after the fixed ones in insertion order; null until the first one is added
+    Map<String, JsonElement> extensions;
+
+    void extension(String key, JsonElement value) {
+        if (extensions == null) {
+            extensions = new LinkedHashMap<>();
+        }
+        extensions.put(key, value);
+    }
+
+    void write(JsonWriter out) throws IOException {
+        out.beginObject();
+        out.name("type").value(TYPE);
+        out.name("name").value(name);
+        out.name("request").value(REQUEST);
+        if (cwd != null) {
+            out.name("cwd").value(cwd);
+        }
+        if (mainClass != null) {
+            out.name("mainClass").value(mainClass);
+        }
+        if (args != null) {
+            out.name("args").beginArray();
+            for (String arg : args) {
+                out.value(arg);
+            }
+            out.endArray();
+        }
+        if (preLaunchTask != null) {
+            out.name("preLaunchTask").value(preLaunchTask);
+        }
+        if (extensions != null) {
+            for (Map.Entry<String, JsonElement> extension : extensions.entrySet()) {
+                out.name(extension.getKey());
+                ElementAdapter.INSTANCE.write(out, extension.getValue());
+            }
+        }
+        out.endObject();
+    }
+
+    /**
+     * Reads a config back from the json written by write, keys without a fixed field become extensions.
+     */
+    static LaunchConfiguration read(JsonReader in) throws IOException {
+        LaunchConfiguration config = new LaunchConfiguration();
+        in.beginObject();
+        while (in.hasNext()) {
+            String key = in.nextName();
+            switch (key) {
+                case "type":
+                case "request":
+                    in.skipValue();
+                    break;
+                case "name":
+                    config.name = nextString(in);
+                    break;
+                case "cwd":
+                    config.cwd = nextString(in);
+                    break;
+                case "mainClass":
+                    config.mainClass = nextString(in);
+                    break;
+                case "args":
+                    config.args = new ArrayList<>();
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        config.args.add(nextString(in));
+                    }
+                    in.endArray();
+                    break;
+                case "preLaunchTask":
+                    config.preLaunchTask = nextString(in);
+                    break;
+                default:
+                    config.extension(key, ElementAdapter.INSTANCE.read(in));
+            }
+        }
+        in.endObject();
+        return config;
+    }
+
+    private static String nextString(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextString();
+    }
+
+    /**
+     * Writes a whole launch.json, pretty printed and escaped the same way Gson's pretty printing does.
+     */
+    static void writeLaunch(Writer writer, Iterable<LaunchConfiguration> configs) throws IOException {
+        JsonWriter out = newJsonWriter(writer);
+        out.beginObject();
+        out.name("version").value(VERSION);
+        out.name("configurations").beginArray();
+        for (LaunchConfiguration config : configs) {
+            config.write(out);
+        }
+        out.endArray();
+        out.endObject();
+        out.flush();
+    }
+
+    /**
+     * Builds Gson's adapter for extension values on first use only, most configs have no extensions and building a
+     * Gson instance costs more than reading a whole index query.
+     */
+    private static class ElementAdapter {
+        static final TypeAdapter<JsonElement> INSTANCE = new Gson().getAdapter(JsonElement.class);
+    }
+
+    /**
+     * Reads a file vscode keeps settings in, such as tasks.json or a .code-workspace, which may have comments.
+     *
+     * @return the file's object, or null when the file does not exist
+     * @throws IOException when the file is not a json object
+     */
+    static JsonObject readSettings(File file) throws IOException {
+        if (!file.isFile()) return null;
+        JsonElement json;
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            json = JsonParser.parseReader(reader);
+        } catch (JsonParseException jpe) {
+            throw new IOException(file + " is not valid json: " + jpe.getMessage());
+        }
+        if (!json.isJsonObject()) throw new IOException(file + " is not a json object");
+        return json.getAsJsonObject();
+    }
+
+    /**
+     * @return the member of the object, or null when either is missing
+     * @throws IOException when the member is not of the given type
+     */
+    static <T extends JsonElement> T member(JsonObject object, String name, Class<T> type) throws IOException {
+        JsonElement member = object != null ? object.get(name) : null;
+        if (member == null) return null;
+        if (!type.isInstance(member)) throw new IOException("'" + name + "' is not a " + type.getSimpleName());
+        return type.cast(member);
+    }
+
+    static void writeElement(JsonWriter out, JsonElement element) throws IOException {
+        ElementAdapter.INSTANCE.write(out, element);
+    }
+
+    static JsonWriter newJsonWriter(Writer writer) {
+        JsonWriter out = new JsonWriter(writer);
+        out.setIndent("  ");
+        out.setHtmlSafe(true);
+        return out;
+    }
+}
@@ -0,0 +1,343 @@
+package vscode;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Writes the converted configs as one .vscode/launch.json per module folder, plus a multi-root .code-workspace in the
+ * project root that opens the root and every module folder with a shard, instead of one launch.json holding them all.
+ * The folders and tasks are merged into an existing .code-workspace, keeping whatever else the user has in it.
+ *
+ * A shard is only rewritten when its content changed, so converting again after editing one module's run configs
+ * only touches that module's launch.json and vscode only reloads that folder. The configs arrive grouped by folder and
+ * every shard is streamed, compared with its launch.json as it is written, so no more than one config is held at a time.
+ */
+class LaunchShards {
+    private static final String WORKSPACE_FOLDER = "${workspaceFolder}";
+
+    // the order write() takes the configs in: by folder, the project root first, then by name within a folder
+    static final Comparator<LaunchConfiguration> BY_FOLDER = new Comparator<LaunchConfiguration>() {
+        public int compare(LaunchConfiguration ob1, LaunchConfiguration ob2) {
+            int folders = folder(ob1).compareTo(folder(ob2));
+            return folders != 0 ? folders : ConfigSorter.BY_NAME.compare(ob1, ob2);
+        }
+    };
+
+    private final File projectRoot;
+    private final String rootName;
+    private int written;
+    private int unchanged;
+    private String workspaceProblem;
+
+    LaunchShards(File projectRoot) throws IOException {
+        this.projectRoot = projectRoot.getCanonicalFile();
+        this.rootName = this.projectRoot.getName().isEmpty() ? "root" : this.projectRoot.getName();
+    }
+
+    /**
+     * @param configs the configs ordered BY_FOLDER, each with the folder of its module (null or "" for the project
+     *                root)
+     * @param tasks   the tasks the configs run before launch, shared by every folder through the .code-workspace
+     * @return the .code-workspace file
+     * @throws IllegalArgumentException when the configs of a folder are not next to each other
+     */
+    File write(Iterable<LaunchConfiguration> configs, BuildTasks tasks) throws IOException {
+        Shard shard = new Shard(configs.iterator());
+        List<String> folders = new ArrayList<>();
+        while (shard.next != null) {
+            String folder = folder(shard.next);
+            if (!folders.isEmpty() && folder.compareTo(folders.get(folders.size() - 1)) <= 0) {
+                throw new IllegalArgumentException("the configs of folder '" + folder + "' are not next to each other");
+            }
+            folders.add(folder);
+            shard.folder = folder;
+            File directory = new File(projectRoot, folder);
+            // a symbolic link inside the project can still lead out of it
+            if (!folder.equals(shardFolder(folder)) || !directory.getCanonicalFile().toPath().startsWith(projectRoot.toPath())) {
+                throw new IOException("shard folder '" + folder + "' is outside of " + projectRoot);
+            }
+            if (writeIfChanged(new File(directory, ".vscode/launch.json"),
+                    writer -> LaunchConfiguration.writeLaunch(writer, () -> shard))) {
+                written++;
+            } else {
+                unchanged++;
+            }
+            // a shard not written to the end would otherwise be taken for the next folder
+            while (shard.hasNext()) {
+                shard.next();
+            }
+        }
+
+        File workspace = new File(projectRoot, rootName + ".code-workspace");
+        // the user's own folders, settings and tasks in an existing workspace are kept
+        JsonObject existing;
+        JsonArray existingFolders;
+        JsonObject existingTasks;
+        try {
+            existing = LaunchConfiguration.readSettings(workspace);
+            existingFolders = LaunchConfiguration.member(existing, "folders", JsonArray.class);
+            existingTasks = LaunchConfiguration.member(existing, "tasks", JsonObject.class);
+            LaunchConfiguration.member(existingTasks, "tasks", JsonArray.class);
+        } catch (IOException ioe) {
+            workspaceProblem = ioe.getMessage();
+            return workspace;
+        }
+        writeIfChanged(workspace, writer -> {
+            JsonWriter out = LaunchConfiguration.newJsonWriter(writer);
+            out.beginObject();
+            if (existingFolders == null) {
+                writeFolders(out, folders, null);
+            }
+            if (existing != null) {
+                for (Map.Entry<String, JsonElement> member : existing.entrySet()) {
+                    if (member.getKey().equals("folders")) {
+                        writeFolders(out, folders, existingFolders);
+                    } else if (member.getKey().equals("tasks")) {
+                        out.name("tasks").beginObject();
+                        tasks.write(out, existingTasks);
+                        out.endObject();
+                    } else {
+                        out.name(member.getKey());
+                        LaunchConfiguration.writeElement(out, member.getValue());
+                    }
+                }
+            }
+            if (existingTasks == null && !tasks.isEmpty()) {
+                out.name("tasks").beginObject();
+                tasks.write(out);
+                out.endObject();
+            }
+            out.endObject();
+            out.flush();
+        });
+        return workspace;
+    }
+
+    /**
+     * Writes the root and the shard folders, followed by the folders of the existing workspace that are neither.
+     */
+    private void writeFolders(JsonWriter out, List<String> folders, JsonArray existing) throws IOException {
+        out.name("folders").beginArray();
+        // the root is named explicitly so the module shards can refer to it as ${workspaceFolder:name}
+        out.beginObject().name("name").value(rootName).name("path").value(".").endObject();
+        for (String folder : folders) {
+            if (!folder.isEmpty()) {
+                out.beginObject().name("path").value(folder).endObject();
+            }
+        }
+        if (existing != null) {
+            for (JsonElement folder : existing) {
+                JsonElement path = folder.isJsonObject() ? folder.getAsJsonObject().get("path") : null;
+                String shard = path != null && path.isJsonPrimitive() ? shardFolder(path.getAsString()) : null;
+                if (shard != null && (shard.isEmpty() || folders.contains(shard))) continue;
+                LaunchConfiguration.writeElement(out, folder);
+            }
+        }
+        out.endArray();
+    }
+
+    /**
+     * @return why an existing .code-workspace was left as it is instead of being merged with the shards, or null
+     */
+    String workspaceProblem() {
+        return workspaceProblem;
+    }
+
+    int written() {
+        return written;
+    }
+
+    int unchanged() {
+        return unchanged;
+    }
+
+    /**
+     * ${workspaceFolder} resolves to the module folder inside a multi-root workspace, while the run configs use it
+     * for the project root, so it is pinned to the root folder for the configs in a module shard.
+     */
+    private void relativeToRoot(LaunchConfiguration config) {
+        String root = "${workspaceFolder:" + rootName + "}";
+        if (config.cwd != null) {
+            config.cwd = config.cwd.replace(WORKSPACE_FOLDER, root);
+        }
+        if (config.args != null) {
+            for (int i = 0; i < config.args.size(); i++) {
+                config.args.set(i, config.args.get(i).replace(WORKSPACE_FOLDER, root));
+            }
+        }
+    }
+
+    /**
+     * Module folders come from the .iml files of the project, which may point anywhere, so only those inside the
+     * project root get a shard.
+     *
+     * @param directory a module folder relative to the project root
+     * @return the normalized folder, or null when it is absolute or leads out of the project root
+     */
+    static String shardFolder(String directory) {
+        Path path = Paths.get(directory).normalize();
+        if (path.isAbsolute() || path.startsWith("..")) return null;
+        return path.toString().replace(File.separatorChar, '/');
+    }
+
+    private static String folder(LaunchConfiguration config) {
+        return config.folder != null ? config.folder : "";
+    }
+
+    /**
+     * The configs of one folder, with the first config of the next folder read ahead.
+     */
+    private class Shard implements Iterator<LaunchConfiguration> {
+        private final Iterator<LaunchConfiguration> configs;
+        LaunchConfiguration next;
+        String folder;
+
+        Shard(Iterator<LaunchConfiguration> configs) {
+            this.configs = configs;
+            next = configs.hasNext() ? configs.next() : null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null && folder(next).equals(folder);
+        }
+
+        @Override
+        public LaunchConfiguration next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            LaunchConfiguration config = next;
+            next = configs.hasNext() ? configs.next() : null;
+            if (!folder.isEmpty()) {
+                relativeToRoot(config);
+            }
+            return config;
+        }
+    }
+
+    private interface Content {
+        void write(Writer writer) throws IOException;
+    }
+
+    /**
+     * Writes the content to a temporary file next to the file, which replaces the file only when they differ.
+     *
+     * @return whether the file was written, false when it already had the given content
+     */
+    private static boolean writeIfChanged(File file, Content content) throws IOException {
+        try (ChangeWriter writer = new ChangeWriter(file)) {
+            content.write(writer);
+            return writer.replace();
+        }
+    }
+
+    /**
+     * Compares what is written with the file as it goes and only creates the temporary file at the first difference,
+     * starting it with the part both have in common. An unchanged file therefore leaves its folder untouched, whose
+     * mtime the ModuleIndex cache depends on.
+     */
+    private static class ChangeWriter extends Writer {
+        private final File file;
+        private Reader existing;
+        // the number of chars written so far that match the file
+        private long same;
+        private Path temp;
+        private Writer out;
+
+        ChangeWriter(File file) throws IOException {
+            this.file = file;
+            if (file.isFile()) existing = reader(file);
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) throws IOException {
+            if (out == null) {
+                int matched = 0;
+                while (matched < length && existing != null && existing.read() == chars[offset + matched]) {
+                    matched++;
+                }
+                same += matched;
+                if (matched == length) return;
+                diverge();
+                offset += matched;
+                length -= matched;
+            }
+            out.write(chars, offset, length);
+        }
+
+        private void diverge() throws IOException {
+            if (existing != null) {
+                existing.close();
+                existing = null;
+            }
+            file.getParentFile().mkdirs();
+            temp = Files.createTempFile(file.getParentFile().toPath(), file.getName(), ".tmp");
+            out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8);
+            if (same > 0) {
+                try (Reader in = reader(file)) {
+                    char[] buffer = new char[8192];
+                    for (long left = same; left > 0; ) {
+                        int read = in.read(buffer, 0, (int) Math.min(buffer.length, left));
+                        if (read < 0) throw new IOException(file + " changed while it was compared");
+                        out.write(buffer, 0, read);
+                        left -= read;
+                    }
+                }
+            }
+        }
+
+        /**
+         * @return whether the file was replaced with what was written, false when it already had that content
+         */
+        boolean replace() throws IOException {
+            if (out == null) {
+                if (existing != null && existing.read() < 0) return false;
+                diverge();
+            }
+            out.close();
+            Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            temp = null;
+            return true;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (out != null) out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (existing != null) existing.close();
+                if (out != null) out.close();
+            } finally {
+                if (temp != null) Files.deleteIfExists(temp);
+            }
+        }
+
+        private static Reader reader(File file) throws IOException {
+            // malformed bytes decode to U+FFFD instead of failing, and no longer match what is written
+            return new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+        }
+    }
+}
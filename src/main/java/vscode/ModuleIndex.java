@@ -0,0 +1,378 @@
+package vscode;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Maps IntelliJ module names onto the project names vscode's java tooling uses for the same modules.
+ *
+ * IntelliJ names a module after its .iml file, its Maven artifactId or its Gradle project path (root.sub.main),
+ * while the java language server names Maven projects after their artifactId and Gradle projects after their folder.
+ * Building the index walks the whole project tree in parallel, so it is cached on disk and only rebuilt once the
+ * mtime of one of the scanned files or folders changes.
+ */
+class ModuleIndex {
+    // build output and dependency folders never contain module definitions
+    private static final Set<String> SKIPPED_FOLDERS = new HashSet<>(Arrays.asList("node_modules", "target", "build", "out"));
+    private static final Set<String> BUILD_FILES = new HashSet<>(Arrays.asList("pom.xml", "build.gradle",
+            "build.gradle.kts", "settings.gradle", "settings.gradle.kts", "modules.xml"));
+    private static final Pattern ROOT_PROJECT_NAME = Pattern.compile("rootProject\\.name\\s*=\\s*['\"]([^'\"]+)['\"]");
+
+    /**
+     * A module as vscode sees it: its java project name and its folder relative to the project root ("" for the root).
+     */
+    static class Entry {
+        final String project;
+        final String directory;
+
+        Entry(String project, String directory) {
+            this.project = project;
+            this.directory = directory;
+        }
+    }
+
+    private final Map<String, Entry> modules;
+    // mtime of every file and folder the index was built from, keyed by absolute path
+    private final Map<String, Long> mtimes;
+    private final boolean cached;
+
+    private ModuleIndex(Map<String, Entry> modules, Map<String, Long> mtimes, boolean cached) {
+        this.modules = modules;
+        this.mtimes = mtimes;
+        this.cached = cached;
+    }
+
+    /**
+     * Returns the index of the given project, reading it from the cache when none of its sources changed.
+     */
+    static ModuleIndex load(File projectRoot) throws IOException {
+        return load(projectRoot, XmlLimits.DEFAULT);
+    }
+
+    /**
+     * @param limits the limits every build file is parsed with, a file exceeding them is skipped
+     */
+    static ModuleIndex load(File projectRoot, XmlLimits limits) throws IOException {
+        File root = projectRoot.getCanonicalFile();
+        File cache = Caches.file("modules", root.getPath());
+        ModuleIndex index = readCache(cache, root);
+        if (index == null) {
+            index = scan(root, limits);
+            index.writeCache(cache, root);
+        }
+        return index;
+    }
+
+    /**
+     * @return the vscode project name of the IntelliJ module, or the module name itself when it is unknown
+     */
+    String projectName(String moduleName) {
+        Entry entry = modules.get(moduleName);
+        return entry != null ? entry.project : moduleName;
+    }
+
+    /**
+     * @return the module's entry, or null when the module is unknown
+     */
+    Entry entry(String moduleName) {
+        return modules.get(moduleName);
+    }
+
+    /**
+     * @return the folder of every known module relative to the project root, including the root itself ("")
+     */
+    Set<String> directories() {
+        Set<String> directories = new TreeSet<>();
+        directories.add("");
+        for (Entry entry : modules.values()) {
+            directories.add(entry.directory);
+        }
+        return directories;
+    }
+
+    /**
+     * @return a digest of every module's project name and folder, which changes whenever the index maps a module
+     *         differently
+     */
+    String fingerprint() {
+        MessageDigest digest = Caches.digest("SHA-1");
+        for (Map.Entry<String, Entry> module : new TreeMap<>(modules).entrySet()) {
+            digest.update((module.getKey() + '\0' + module.getValue().project + '\0' + module.getValue().directory + '\n')
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+        return Caches.hex(digest.digest());
+    }
+
+    int size() {
+        return modules.size();
+    }
+
+    boolean isCached() {
+        return cached;
+    }
+
+    private static ModuleIndex scan(File root, XmlLimits limits) {
+        ConcurrentHashMap<String, Long> mtimes = new ConcurrentHashMap<>();
+        ConcurrentLinkedQueue<File> buildFiles = new ConcurrentLinkedQueue<>();
+        ForkJoinPool.commonPool().invoke(new ScanTask(root, mtimes, buildFiles));
+
+        ConcurrentHashMap<File, String> artifactIds = new ConcurrentHashMap<>();
+        Set<File> gradleFolders = ConcurrentHashMap.newKeySet();
+        ConcurrentHashMap<String, File> imlModules = new ConcurrentHashMap<>();
+        ConcurrentLinkedQueue<File> referencedImls = new ConcurrentLinkedQueue<>();
+        String[] rootProjectName = new String[1];
+        buildFiles.parallelStream().forEach(file -> {
+            String name = file.getName();
+            try {
+                if (name.equals("pom.xml")) {
+                    String artifactId = readArtifactId(file, limits);
+                    if (artifactId != null) artifactIds.put(file.getParentFile(), artifactId);
+                } else if (name.startsWith("build.gradle") || name.startsWith("settings.gradle")) {
+                    gradleFolders.add(file.getParentFile());
+                    if (name.startsWith("settings.gradle") && file.getParentFile().equals(root)) {
+                        rootProjectName[0] = readRootProjectName(file);
+                    }
+                } else if (name.equals("modules.xml")) {
+                    referencedImls.addAll(readModuleFiles(file, root, limits));
+                } else {
+                    imlModules.put(name.substring(0, name.length() - ".iml".length()), readContentRoot(file, limits));
+                }
+            } catch (IOException | SAXException e) {
+                // a broken build file only means its module keeps the name IntelliJ gave it
+            }
+        });
+        // modules.xml may point at .iml files outside of the scanned tree
+        referencedImls.parallelStream().filter(File::isFile).forEach(iml -> {
+            String name = iml.getName().substring(0, iml.getName().length() - ".iml".length());
+            try {
+                if (!imlModules.containsKey(name)) {
+                    imlModules.put(name, readContentRoot(iml, limits));
+                    mtimes.put(iml.getPath(), iml.lastModified());
+                }
+            } catch (IOException | SAXException e) {
+                // same as above
+            }
+        });
+
+        HashMap<String, Entry> modules = new HashMap<>();
+        String rootName = rootProjectName[0] != null ? rootProjectName[0] : root.getName();
+        for (File folder : gradleFolders) {
+            String directory = relativize(root, folder);
+            Entry entry = new Entry(gradleProjectName(folder, root, rootName), directory);
+            // IntelliJ joins the Gradle project path with dots and adds a module per source set
+            String name = directory.isEmpty() ? rootName : rootName + "." + directory.replace('/', '.');
+            modules.put(name, entry);
+            modules.put(name + ".main", entry);
+            modules.put(name + ".test", entry);
+        }
+        for (Map.Entry<File, String> artifact : artifactIds.entrySet()) {
+            modules.put(artifact.getValue(), new Entry(artifact.getValue(), relativize(root, artifact.getKey())));
+        }
+        // explicit .iml modules win over names derived from the build files
+        for (Map.Entry<String, File> iml : imlModules.entrySet()) {
+            File folder = iml.getValue();
+            String project = artifactIds.get(folder);
+            if (project == null && gradleFolders.contains(folder)) {
+                project = gradleProjectName(folder, root, rootName);
+            }
+            modules.put(iml.getKey(), new Entry(project != null ? project : iml.getKey(), relativize(root, folder)));
+        }
+        return new ModuleIndex(modules, new HashMap<>(mtimes), false);
+    }
+
+    private static String gradleProjectName(File folder, File root, String rootName) {
+        return folder.equals(root) ? rootName : folder.getName();
+    }
+
+    private static String relativize(File root, File folder) {
+        return root.toPath().relativize(folder.toPath()).toString().replace(File.separatorChar, '/');
+    }
+
+    /**
+     * Walks one folder, forking a subtask for every subfolder so the tree is listed in parallel.
+     */
+    private static class ScanTask extends RecursiveAction {
+        private final File folder;
+        private final Map<String, Long> mtimes;
+        private final Queue<File> buildFiles;
+
+        ScanTask(File folder, Map<String, Long> mtimes, Queue<File> buildFiles) {
+            this.folder = folder;
+            this.mtimes = mtimes;
+            this.buildFiles = buildFiles;
+        }
+
+        @Override
+        protected void compute() {
+            // a folder's mtime changes whenever an entry is added or removed, which catches new modules
+            mtimes.put(folder.getPath(), folder.lastModified());
+            File[] children = folder.listFiles();
+            if (children == null) return;
+            List<ScanTask> subtasks = new ArrayList<>();
+            for (File child : children) {
+                String name = child.getName();
+                if (child.isDirectory()) {
+                    if (name.startsWith(".") && !name.equals(".idea") || SKIPPED_FOLDERS.contains(name)) continue;
+                    subtasks.add(new ScanTask(child, mtimes, buildFiles));
+                } else if (name.endsWith(".iml") || BUILD_FILES.contains(name)
+                        && (!name.equals("modules.xml") || folder.getName().equals(".idea"))) {
+                    mtimes.put(child.getPath(), child.lastModified());
+                    buildFiles.add(child);
+                }
+            }
+            invokeAll(subtasks);
+        }
+    }
+
+    private static String readArtifactId(File pom, XmlLimits limits) throws IOException, SAXException {
+        StringBuilder artifactId = new StringBuilder();
+        readXml(pom, limits, new DefaultHandler() {
+            private int depth;
+            private boolean inArtifactId;
+
+            @Override
+            public void startElement(String uri, String localName, String qName, Attributes atts) {
+                // only project/artifactId, not the parent's or a dependency's
+                inArtifactId = ++depth == 2 && qName.equals("artifactId");
+            }
+
+            @Override
+            public void endElement(String uri, String localName, String qName) {
+                depth--;
+                inArtifactId = false;
+            }
+
+            @Override
+            public void characters(char[] ch, int start, int length) {
+                if (inArtifactId) artifactId.append(ch, start, length);
+            }
+        });
+        String trimmed = artifactId.toString().trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    private static String readRootProjectName(File settings) throws IOException {
+        Matcher matcher = ROOT_PROJECT_NAME.matcher(new String(Files.readAllBytes(settings.toPath()), StandardCharsets.UTF_8));
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    private static List<File> readModuleFiles(File modulesXml, File root, XmlLimits limits) throws IOException, SAXException {
+        List<File> imls = new ArrayList<>();
+        readXml(modulesXml, limits, new DefaultHandler() {
+            @Override
+            public void startElement(String uri, String localName, String qName, Attributes atts) {
+                String filepath = atts.getValue("filepath");
+                if (qName.equals("module") && filepath != null) {
+                    imls.add(new File(filepath.replace("$PROJECT_DIR$", root.getPath())));
+                }
+            }
+        });
+        return imls;
+    }
+
+    /**
+     * @return the module's first content root, or the folder of the .iml file when it does not declare one
+     */
+    private static File readContentRoot(File iml, XmlLimits limits) throws IOException, SAXException {
+        File moduleDir = iml.getParentFile();
+        String[] url = new String[1];
+        readXml(iml, limits, new DefaultHandler() {
+            @Override
+            public void startElement(String uri, String localName, String qName, Attributes atts) {
+                if (url[0] == null && qName.equals("content")) url[0] = atts.getValue("url");
+            }
+        });
+        if (url[0] == null || !url[0].startsWith("file://")) return moduleDir;
+        String path = url[0].substring("file://".length()).replace("$MODULE_DIR$", moduleDir.getPath());
+        return new File(path).toPath().normalize().toFile();
+    }
+
+    private static void readXml(File file, XmlLimits limits, DefaultHandler handler) throws IOException, SAXException {
+        // build files come from the same untrusted repository as the run configs
+        XMLReader reader = limits.newReader(false);
+        reader.setContentHandler(handler);
+        try (InputStream in = new FileInputStream(file)) {
+            reader.parse(new InputSource(in));
+        }
+    }
+
+    private static ModuleIndex readCache(File cache, File root) {
+        if (!cache.isFile()) return null;
+        try (Reader reader = Files.newBufferedReader(cache.toPath(), StandardCharsets.UTF_8)) {
+            JsonObject json = JsonParser.parseReader(reader).getAsJsonObject();
+            if (!root.getPath().equals(json.get("root").getAsString())) return null;
+            HashMap<String, Long> mtimes = new HashMap<>();
+            for (Map.Entry<String, JsonElement> mtime : json.getAsJsonObject("mtimes").entrySet()) {
+                if (new File(mtime.getKey()).lastModified() != mtime.getValue().getAsLong()) return null;
+                mtimes.put(mtime.getKey(), mtime.getValue().getAsLong());
+            }
+            HashMap<String, Entry> modules = new HashMap<>();
+            for (Map.Entry<String, JsonElement> module : json.getAsJsonObject("modules").entrySet()) {
+                JsonObject entry = module.getValue().getAsJsonObject();
+                modules.put(module.getKey(), new Entry(entry.get("project").getAsString(), entry.get("directory").getAsString()));
+            }
+            return new ModuleIndex(modules, mtimes, true);
+        } catch (IOException | RuntimeException e) {
+            // an unreadable or outdated cache is simply rebuilt
+            return null;
+        }
+    }
+
+    private void writeCache(File cache, File root) {
+        JsonObject json = new JsonObject();
+        json.addProperty("root", root.getPath());
+        JsonObject mtimesJson = new JsonObject();
+        for (Map.Entry<String, Long> mtime : mtimes.entrySet()) {
+            mtimesJson.addProperty(mtime.getKey(), mtime.getValue());
+        }
+        json.add("mtimes", mtimesJson);
+        JsonObject modulesJson = new JsonObject();
+        for (Map.Entry<String, Entry> module : modules.entrySet()) {
+            JsonObject entry = new JsonObject();
+            entry.addProperty("project", module.getValue().project);
+            entry.addProperty("directory", module.getValue().directory);
+            modulesJson.add(module.getKey(), entry);
+        }
+        json.add("modules", modulesJson);
+        cache.getParentFile().mkdirs();
+        try (Writer writer = Files.newBufferedWriter(cache.toPath(), StandardCharsets.UTF_8)) {
+            new Gson().toJson(json, writer);
+        } catch (IOException ioe) {
+            // the index is still usable, it is simply rebuilt on the next run
+        }
+    }
+}
@@ -0,0 +1,521 @@
+package vscode;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * On-disk inverted index of converted run configurations across any number of projects.
+ *
+ * Every config is stored once as a document and listed under the terms it can be found by: its main class (fully
+ * qualified and simple name), its module, the tokens of its name and its arguments. Documents and postings are spread
+ * over a fixed number of bucket files, so a query only reads the buckets of its terms and of the matching documents,
+ * and an update only rewrites the buckets it touched. The manifest records the content hash of every indexed file,
+ * which lets an update skip the files that did not change without parsing them.
+ *
+ * The buckets and the manifest live in a generation folder named by the current file. An update writes a complete
+ * new generation and then renames a new current file over the old one, so the buckets and the manifest, with the next
+ * document id in it, always change together.
+ */
+class RunConfigIndex {
+    static final String MAIN_CLASS = "class:";
+    static final String MODULE = "module:";
+    static final String NAME = "name:";
+    static final String ARG = "arg:";
+
+    private static final int BUCKETS = 64;
+    private static final String CURRENT = "current";
+    private static final String GENERATION = "generation-";
+    private static final String MANIFEST = "manifest.json";
+    private static final Pattern NAME_SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern CAMEL_HUMPS = Pattern.compile("(?<=[\\p{Ll}\\p{N}])(?=\\p{Lu})");
+
+    /**
+     * A converted config with the project and the file it was converted from.
+     */
+    static class Document {
+        final String project;
+        final String source;
+        final LaunchConfiguration config;
+
+        Document(String project, String source, LaunchConfiguration config) {
+            this.project = project;
+            this.source = source;
+            this.config = config;
+        }
+    }
+
+    /**
+     * An indexed file: the hash of the content it was indexed with and the documents converted from it.
+     */
+    private static class Source {
+        final String hash;
+        final List<Integer> documents;
+
+        Source(String hash, List<Integer> documents) {
+            this.hash = hash;
+            this.documents = documents;
+        }
+    }
+
+    private final File directory;
+    // the generation folder everything is read from, resolved once so an instance never mixes two generations
+    private File generation;
+    // the manifest is only needed to update the index, so queries never read it
+    private Map<String, Source> sources;
+    private int nextId;
+    private final Map<Integer, Map<String, Set<Integer>>> termBuckets = new HashMap<>();
+    private final Map<Integer, Map<Integer, Document>> documentBuckets = new HashMap<>();
+    private final Set<Integer> dirtyTerms = new TreeSet<>();
+    private final Set<Integer> dirtyDocuments = new TreeSet<>();
+    private boolean dirtyManifest;
+
+    RunConfigIndex(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @return the index folder inside the cache folder (see Caches)
+     */
+    static File defaultDirectory() {
+        return new File(Caches.directory(), "index");
+    }
+
+    File directory() {
+        return directory;
+    }
+
+    /**
+     * @return whether the file was indexed with exactly this content
+     */
+    boolean isCurrent(String source, String hash) throws IOException {
+        Source indexed = manifest().get(source);
+        return indexed != null && indexed.hash.equals(hash);
+    }
+
+    /**
+     * Replaces every document converted from the file with the given configs.
+     */
+    void put(String source, String hash, String project, List<LaunchConfiguration> configs) throws IOException {
+        remove(source);
+        List<Integer> ids = new ArrayList<>();
+        for (LaunchConfiguration config : configs) {
+            int id = nextId++;
+            ids.add(id);
+            documents(id).put(id, new Document(project, source, config));
+            dirtyDocuments.add(bucket(id));
+            for (String term : terms(config)) {
+                postings(term).computeIfAbsent(term, t -> new TreeSet<>()).add(id);
+                dirtyTerms.add(bucket(term));
+            }
+        }
+        manifest().put(source, new Source(hash, ids));
+        dirtyManifest = true;
+    }
+
+    /**
+     * Removes the files whose path starts with the prefix and that are not in the given set, because they no longer
+     * exist.
+     *
+     * @return the number of files removed
+     */
+    int removeMissing(String prefix, Set<String> existing) throws IOException {
+        List<String> missing = new ArrayList<>();
+        for (String source : manifest().keySet()) {
+            if (source.startsWith(prefix) && !existing.contains(source)) missing.add(source);
+        }
+        for (String source : missing) {
+            remove(source);
+        }
+        return missing.size();
+    }
+
+    /**
+     * Writes a new generation with the buckets that changed and the manifest, hard linking the unchanged buckets from
+     * the current generation, and then makes it current with one atomic rename. Until that rename the current
+     * generation is untouched, so a failed or interrupted save leaves the index as it was before.
+     */
+    void save() throws IOException {
+        if (!dirtyManifest) return;
+        File previous = generation();
+        int number = Integer.parseInt(previous.getName().substring(GENERATION.length()));
+        File next = new File(directory, GENERATION + (number + 1));
+        deleteGenerations(previous);
+        if (!next.mkdirs()) throw new IOException("cannot create " + next);
+        write(previous, next);
+        File current = new File(directory, CURRENT);
+        File temporary = new File(directory, CURRENT + ".tmp");
+        Files.write(temporary.toPath(), next.getName().getBytes(StandardCharsets.UTF_8));
+        Files.move(temporary.toPath(), current.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        generation = next;
+        dirtyTerms.clear();
+        dirtyDocuments.clear();
+        dirtyManifest = false;
+    }
+
+    private void write(File previous, File next) throws IOException {
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            String name = bucketName("terms", bucket);
+            if (!dirtyTerms.contains(bucket)) {
+                link(previous, next, name);
+                continue;
+            }
+            try (JsonWriter out = newWriter(new File(next, name))) {
+                out.beginObject();
+                for (Map.Entry<String, Set<Integer>> term : termBuckets.get(bucket).entrySet()) {
+                    out.name(term.getKey()).beginArray();
+                    for (int id : term.getValue()) {
+                        out.value(id);
+                    }
+                    out.endArray();
+                }
+                out.endObject();
+            }
+        }
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            String name = bucketName("documents", bucket);
+            if (!dirtyDocuments.contains(bucket)) {
+                link(previous, next, name);
+                continue;
+            }
+            try (JsonWriter out = newWriter(new File(next, name))) {
+                out.beginObject();
+                for (Map.Entry<Integer, Document> document : documentBuckets.get(bucket).entrySet()) {
+                    out.name(Integer.toString(document.getKey())).beginObject();
+                    out.name("project").value(document.getValue().project);
+                    out.name("source").value(document.getValue().source);
+                    out.name("config");
+                    document.getValue().config.write(out);
+                    out.endObject();
+                }
+                out.endObject();
+            }
+        }
+        try (JsonWriter out = newWriter(new File(next, MANIFEST))) {
+            out.beginObject();
+            out.name("nextId").value(nextId);
+            out.name("sources").beginObject();
+            for (Map.Entry<String, Source> source : sources.entrySet()) {
+                out.name(source.getKey()).beginObject();
+                out.name("hash").value(source.getValue().hash);
+                out.name("documents").beginArray();
+                for (int id : source.getValue().documents) {
+                    out.value(id);
+                }
+                out.endArray();
+                out.endObject();
+            }
+            out.endObject();
+            out.endObject();
+        }
+    }
+
+    /**
+     * @param terms terms built with term(field, value), all of which a document has to match
+     * @return the matching documents ordered by project and name
+     */
+    List<Document> query(List<String> terms) throws IOException {
+        Set<Integer> matches = null;
+        for (String term : terms) {
+            Set<Integer> postings = postings(term).get(term);
+            if (postings == null) return new ArrayList<>();
+            if (matches == null) {
+                matches = new LinkedHashSet<>(postings);
+            } else {
+                matches.retainAll(postings);
+            }
+        }
+        List<Document> found = new ArrayList<>();
+        if (matches != null) {
+            for (int id : matches) {
+                Document document = documents(id).get(id);
+                if (document != null) found.add(document);
+            }
+        }
+        found.sort(Comparator.comparing((Document document) -> document.project)
+                .thenComparing(document -> document.config.name));
+        return found;
+    }
+
+    /**
+     * Prints every config matching all of the terms, one per line with its project, name, main class and arguments
+     * separated by tabs.
+     */
+    static void printQuery(File directory, List<String> terms) throws IOException {
+        long start = System.nanoTime();
+        List<Document> found = new RunConfigIndex(directory).query(terms);
+        for (Document document : found) {
+            LaunchConfiguration config = document.config;
+            System.out.printf("%s\t%s\t%s\t%s%s", document.project, config.name,
+                    config.mainClass != null ? config.mainClass : "", config.args != null ? String.join(" ", config.args) : "",
+                    System.lineSeparator());
+        }
+        System.out.printf("\t%d run configs found in %.1f ms%s", found.size(), (System.nanoTime() - start) / 1e6,
+                System.lineSeparator());
+    }
+
+    /**
+     * @return the term a value of the given field is indexed and queried under
+     */
+    static String term(String field, String value) {
+        return field + value.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @return every term the config can be found by
+     */
+    static Set<String> terms(LaunchConfiguration config) {
+        Set<String> terms = new HashSet<>();
+        if (config.mainClass != null) {
+            int slash = config.mainClass.indexOf('/');
+            String className = config.mainClass.substring(slash + 1);
+            terms.add(term(MAIN_CLASS, className));
+            terms.add(term(MAIN_CLASS, className.substring(className.lastIndexOf('.') + 1)));
+            if (slash > 0) terms.add(term(MODULE, config.mainClass.substring(0, slash)));
+        }
+        if (config.name != null) {
+            for (String token : NAME_SEPARATORS.split(config.name)) {
+                if (token.isEmpty()) continue;
+                terms.add(term(NAME, token));
+                // IngestMain is found by ingestmain, ingest and main
+                for (String hump : CAMEL_HUMPS.split(token)) {
+                    terms.add(term(NAME, hump));
+                }
+            }
+        }
+        if (config.args != null) {
+            for (String arg : config.args) {
+                if (arg.isEmpty()) continue;
+                terms.add(term(ARG, arg));
+                // --profile=prod is also found by --profile
+                int equals = arg.indexOf('=');
+                if (equals > 0) terms.add(term(ARG, arg.substring(0, equals)));
+            }
+        }
+        return terms;
+    }
+
+    private void remove(String source) throws IOException {
+        Source indexed = manifest().remove(source);
+        if (indexed == null) return;
+        dirtyManifest = true;
+        for (int id : indexed.documents) {
+            Document document = documents(id).remove(id);
+            dirtyDocuments.add(bucket(id));
+            if (document == null) continue;
+            for (String term : terms(document.config)) {
+                Map<String, Set<Integer>> bucket = postings(term);
+                Set<Integer> postings = bucket.get(term);
+                if (postings != null && postings.remove(id) && postings.isEmpty()) bucket.remove(term);
+                dirtyTerms.add(bucket(term));
+            }
+        }
+    }
+
+    private Map<String, Source> manifest() throws IOException {
+        if (sources != null) return sources;
+        sources = new TreeMap<>();
+        File manifest = new File(generation(), MANIFEST);
+        if (!manifest.isFile()) return sources;
+        try (JsonReader in = newReader(manifest)) {
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (name.equals("nextId")) {
+                    nextId = in.nextInt();
+                } else if (name.equals("sources")) {
+                    in.beginObject();
+                    while (in.hasNext()) {
+                        String source = in.nextName();
+                        String hash = null;
+                        List<Integer> ids = new ArrayList<>();
+                        in.beginObject();
+                        while (in.hasNext()) {
+                            String key = in.nextName();
+                            if (key.equals("hash")) {
+                                hash = in.nextString();
+                            } else if (key.equals("documents")) {
+                                readIds(in, ids);
+                            } else {
+                                in.skipValue();
+                            }
+                        }
+                        in.endObject();
+                        sources.put(source, new Source(hash, ids));
+                    }
+                    in.endObject();
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+        }
+        return sources;
+    }
+
+    private Map<String, Set<Integer>> postings(String term) throws IOException {
+        int bucket = bucket(term);
+        Map<String, Set<Integer>> postings = termBuckets.get(bucket);
+        if (postings != null) return postings;
+        postings = new TreeMap<>();
+        File file = bucketFile("terms", bucket);
+        if (file.isFile()) {
+            try (JsonReader in = newReader(file)) {
+                in.beginObject();
+                while (in.hasNext()) {
+                    Set<Integer> ids = new TreeSet<>();
+                    postings.put(in.nextName(), ids);
+                    readIds(in, ids);
+                }
+                in.endObject();
+            }
+        }
+        termBuckets.put(bucket, postings);
+        return postings;
+    }
+
+    private Map<Integer, Document> documents(int id) throws IOException {
+        int bucket = bucket(id);
+        Map<Integer, Document> documents = documentBuckets.get(bucket);
+        if (documents != null) return documents;
+        documents = new TreeMap<>();
+        File file = bucketFile("documents", bucket);
+        if (file.isFile()) {
+            try (JsonReader in = newReader(file)) {
+                in.beginObject();
+                while (in.hasNext()) {
+                    int documentId = Integer.parseInt(in.nextName());
+                    String project = null;
+                    String source = null;
+                    LaunchConfiguration config = null;
+                    in.beginObject();
+                    while (in.hasNext()) {
+                        String key = in.nextName();
+                        if (key.equals("project")) {
+                            project = in.nextString();
+                        } else if (key.equals("source")) {
+                            source = in.nextString();
+                        } else if (key.equals("config")) {
+                            config = LaunchConfiguration.read(in);
+                        } else {
+                            in.skipValue();
+                        }
+                    }
+                    in.endObject();
+                    documents.put(documentId, new Document(project, source, config));
+                }
+                in.endObject();
+            }
+        }
+        documentBuckets.put(bucket, documents);
+        return documents;
+    }
+
+    private static void readIds(JsonReader in, Collection<Integer> ids) throws IOException {
+        in.beginArray();
+        while (in.hasNext()) {
+            ids.add(in.nextInt());
+        }
+        in.endArray();
+    }
+
+    private static int bucket(String term) {
+        // String.hashCode is specified, so the bucket of a term is the same on every JVM
+        return Math.floorMod(term.hashCode(), BUCKETS);
+    }
+
+    private static int bucket(int id) {
+        return id % BUCKETS;
+    }
+
+    private File bucketFile(String kind, int bucket) throws IOException {
+        return new File(generation(), bucketName(kind, bucket));
+    }
+
+    private static String bucketName(String kind, int bucket) {
+        return String.format("%s-%02d.json", kind, bucket);
+    }
+
+    /**
+     * @return the current generation folder, which does not exist before the index is first saved
+     */
+    private File generation() throws IOException {
+        if (generation == null) {
+            File current = new File(directory, CURRENT);
+            String name = GENERATION + 0;
+            if (current.isFile()) {
+                name = new String(Files.readAllBytes(current.toPath()), StandardCharsets.UTF_8).trim();
+            }
+            if (!name.startsWith(GENERATION)) throw new IOException("corrupt index " + current);
+            generation = new File(directory, name);
+        }
+        return generation;
+    }
+
+    /**
+     * Deletes every generation but the given one, which are either replaced or left behind by a save that failed.
+     * The one replaced by the save before is only deleted now, so a query that started before it is still served.
+     */
+    private void deleteGenerations(File keep) throws IOException {
+        File[] generations = directory.listFiles((dir, name) -> name.startsWith(GENERATION));
+        if (generations == null) {
+            if (!directory.mkdirs()) throw new IOException("cannot create " + directory);
+            return;
+        }
+        for (File old : generations) {
+            if (old.equals(keep)) continue;
+            File[] files = old.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    Files.deleteIfExists(file.toPath());
+                }
+            }
+            Files.deleteIfExists(old.toPath());
+        }
+    }
+
+    /**
+     * Carries an unchanged file over into the new generation, as a hard link where the file system has them.
+     */
+    private static void link(File from, File to, String name) throws IOException {
+        File source = new File(from, name);
+        if (!source.isFile()) return;
+        File file = new File(to, name);
+        try {
+            Files.createLink(file.toPath(), source.toPath());
+        } catch (UnsupportedOperationException | IOException e) {
+            Files.copy(source.toPath(), file.toPath());
+        }
+    }
+
+    private static JsonReader newReader(File file) throws IOException {
+        Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8);
+        return new JsonReader(reader);
+    }
+
+    private static JsonWriter newWriter(File file) throws IOException {
+        Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
+        return new JsonWriter(writer);
+    }
+}
@@ -0,0 +1,267 @@
+package vscode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.function.Consumer;
+
+import javax.xml.XMLConstants;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.UnmarshallerHandler;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import javax.xml.validation.ValidatorHandler;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.DefaultHandler;
+
+import vscode.generated.Component;
+
+/**
+ * Unmarshals IntelliJ runConfiguration xml files into the generated JAXB model.
+ *
+ * The JAXBContext and the compiled runConfig.xsd schema are thread-safe and expensive to build,
+ * so they are created once and shared by every parser. The SAX reader, the schema validator and
+ * the unmarshaller are not thread-safe, which is why each parser owns its own and reuses them for
+ * every file instead of letting JAXB build a new parser (and validator) per unmarshal call.
+ * The SAX reader is hardened against untrusted input, see XmlLimits.
+ */
+class RunConfigParser {
+    private static JAXBContext context;
+    private static Schema schema;
+
+    private final XMLReader reader;
+    private final ValidatorHandler validator;
+    private final Unmarshaller unmarshaller;
+
+    /**
+     * @param validate validates every file against runConfig.xsd in the same pass that unmarshals it
+     */
+    RunConfigParser(boolean validate) throws JAXBException, SAXException {
+        this(validate, XmlLimits.DEFAULT);
+    }
+
+    /**
+     * @param validate validates every file against runConfig.xsd in the same pass that unmarshals it
+     * @param limits   the size, depth and time every file is parsed within
+     */
+    RunConfigParser(boolean validate, XmlLimits limits) throws JAXBException, SAXException {
+        reader = limits.newReader(true);
+        unmarshaller = context().createUnmarshaller();
+        validator = validate ? schema().newValidatorHandler() : null;
+    }
+
+    /**
+     * Parses a single runConfiguration file.
+     *
+     * @throws SAXException if the file is not well formed or, when validating, does not match the schema
+     * @throws XmlLimits.LimitException if the file exceeds one of the limits or declares a DOCTYPE
+     */
+    Component parse(InputStream in) throws JAXBException, SAXException, IOException {
+        UnmarshallerHandler handler = unmarshaller.getUnmarshallerHandler();
+        if (validator != null) {
+            // the validator sees every event before the unmarshaller does, so an invalid file fails mid-parse
+            validator.setContentHandler(handler);
+            reader.setContentHandler(validator);
+        } else {
+            reader.setContentHandler(handler);
+        }
+        reader.parse(new InputSource(in));
+        return (Component) handler.getResult();
+    }
+
+    /**
+     * Streams through an .idea/workspace.xml and hands every Application configuration of its RunManager component to
+     * the consumer. Everything outside of those configuration elements is skipped as it is read, so none of the
+     * unrelated IDE state in the file is ever built. Configuration templates (default="true") are skipped as well, and
+     * so are the configurations of other types, such as the temporary JUnit and Gradle ones IntelliJ keeps there.
+     */
+    void parseWorkspace(InputStream in, Consumer<Component.Configuration> consumer) throws SAXException, IOException {
+        parseWorkspace(in, consumer, (name, se) -> {
+            throw se;
+        });
+    }
+
+    /**
+     * @param skipped receives each configuration that does not match the schema when validating, which is skipped
+     *                while the rest of the workspace is still read, and each configuration of another type
+     */
+    void parseWorkspace(InputStream in, Consumer<Component.Configuration> consumer, Skipped skipped)
+            throws SAXException, IOException {
+        reader.setContentHandler(new RunManagerHandler(consumer, skipped));
+        reader.parse(new InputSource(in));
+    }
+
+    interface Skipped {
+        /**
+         * @param name the name of the configuration
+         * @param se   the first schema error in it
+         * @throws SAXException to stop reading the workspace
+         */
+        void invalid(String name, SAXException se) throws SAXException;
+
+        /**
+         * @param type the type of the configuration, which is not Application
+         */
+        default void otherType(String name, String type) {
+        }
+    }
+
+    static synchronized JAXBContext context() throws JAXBException {
+        if (context == null) {
+            context = JAXBContext.newInstance(Component.class);
+        }
+        return context;
+    }
+
+    /**
+     * Compiles runConfig.xsd from the classpath the first time it is needed.
+     */
+    static synchronized Schema schema() throws SAXException {
+        if (schema == null) {
+            URL xsd = RunConfigParser.class.getResource("runConfig.xsd");
+            if (xsd == null) {
+                throw new SAXException("runConfig.xsd not found on the classpath");
+            }
+            schema = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI).newSchema(xsd);
+        }
+        return schema;
+    }
+
+    /**
+     * Forwards the events of each RunManager configuration to a fresh unmarshaller, wrapped in a synthetic component
+     * element so that they unmarshal (and validate) exactly like a runConfigurations file.
+     */
+    private class RunManagerHandler extends DefaultHandler {
+        private static final String COMPONENT = "component";
+        private static final String APPLICATION = "Application";
+
+        private final Consumer<Component.Configuration> consumer;
+        private final Skipped skipped;
+        private Locator locator;
+        // the project root element is at depth 1, its components at 2 and their configurations at 3
+        private int depth;
+        private boolean inRunManager;
+        private UnmarshallerHandler unmarshallerHandler;
+        private ContentHandler target;
+        private String name;
+        // the first schema error in the current configuration, whose remaining events are then dropped
+        private SAXException error;
+
+        RunManagerHandler(Consumer<Component.Configuration> consumer, Skipped skipped) {
+            this.consumer = consumer;
+            this.skipped = skipped;
+        }
+
+        @Override
+        public void setDocumentLocator(Locator locator) {
+            this.locator = locator;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes atts) throws SAXException {
+            depth++;
+            if (target != null) {
+                forward(handler -> handler.startElement(uri, localName, qName, atts));
+            } else if (depth == 2 && COMPONENT.equals(localName)) {
+                inRunManager = "RunManager".equals(atts.getValue("name"));
+            } else if (depth == 3 && inRunManager && "configuration".equals(localName)) {
+                // neither templates nor other types are unmarshalled, their events are dropped like the rest
+                String template = atts.getValue("default");
+                if ("true".equals(template) || "1".equals(template)) return;
+                String type = atts.getValue("type");
+                // a configuration without a type is taken for an Application, like runConfigurations files are
+                if (type != null && !APPLICATION.equals(type)) {
+                    skipped.otherType(atts.getValue("name"), type);
+                    return;
+                }
+                unmarshallerHandler = unmarshaller.getUnmarshallerHandler();
+                if (validator != null) {
+                    validator.setContentHandler(unmarshallerHandler);
+                    target = validator;
+                } else {
+                    target = unmarshallerHandler;
+                }
+                name = atts.getValue("name");
+                error = null;
+                if (locator != null) {
+                    target.setDocumentLocator(locator);
+                }
+                forward(handler -> {
+                    handler.startDocument();
+                    handler.startElement("", COMPONENT, COMPONENT, new AttributesImpl());
+                    handler.startElement(uri, localName, qName, atts);
+                });
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            if (target != null) {
+                forward(handler -> handler.endElement(uri, localName, qName));
+                if (depth == 3) {
+                    forward(handler -> {
+                        handler.endElement("", COMPONENT, COMPONENT);
+                        handler.endDocument();
+                    });
+                    target = null;
+                    if (error != null) {
+                        skipped.invalid(name, error);
+                        depth--;
+                        return;
+                    }
+                    Component.Configuration config;
+                    try {
+                        config = ((Component) unmarshallerHandler.getResult()).getConfiguration();
+                    } catch (JAXBException je) {
+                        throw new SAXException(je);
+                    }
+                    consumer.accept(config);
+                }
+            } else if (depth == 2) {
+                inRunManager = false;
+            }
+            depth--;
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) throws SAXException {
+            if (target != null) {
+                forward(handler -> handler.characters(ch, start, length));
+            }
+        }
+
+        @Override
+        public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
+            if (target != null) {
+                forward(handler -> handler.ignorableWhitespace(ch, start, length));
+            }
+        }
+
+        /**
+         * Hands an event to the configuration's validator or unmarshaller. A schema error only ends the configuration
+         * it is in, the validator starts over with the next one.
+         */
+        private void forward(Event event) throws SAXException {
+            if (error != null) return;
+            try {
+                event.to(target);
+            } catch (SAXException se) {
+                if (validator == null) throw se;
+                error = se;
+            }
+        }
+    }
+
+    private interface Event {
+        void to(ContentHandler handler) throws SAXException;
+    }
+}
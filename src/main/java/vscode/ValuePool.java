@@ -0,0 +1,47 @@
+package vscode;
+
+import java.util.HashMap;
+
+/**
+ * Per-run interning pool for the values written into launch.json.
+ *
+ * Every run config repeats the same working directories, module names and program arguments, and JAXB hands
+ * each of them back as a fresh String. Routing them through the pool means all configs share one String per
+ * distinct value. Unlike String.intern() the pool is dropped with the run instead of living in the JVM string table.
+ */
+class ValuePool {
+    private final HashMap<String, String> values = new HashMap<>();
+    private int lookups;
+    private int added;
+
+    /**
+     * Returns the canonical instance of the given value, making it canonical on first use.
+     */
+    String intern(String value) {
+        lookups++;
+        String canonical = values.putIfAbsent(value, value);
+        if (canonical == null) added++;
+        return canonical != null ? canonical : value;
+    }
+
+    /**
+     * @return the number of distinct values held by the pool
+     */
+    int size() {
+        return values.size();
+    }
+
+    /**
+     * @return the number of lookups that were answered with an already pooled value
+     */
+    int shared() {
+        return lookups - added;
+    }
+
+    /**
+     * Forgets every pooled value once the configs sharing them are no longer in memory, keeping the counts.
+     */
+    void clear() {
+        values.clear();
+    }
+}
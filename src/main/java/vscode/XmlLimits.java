@@ -0,0 +1,213 @@
+package vscode;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXNotRecognizedException;
+import org.xml.sax.SAXNotSupportedException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.ext.DefaultHandler2;
+import org.xml.sax.helpers.XMLFilterImpl;
+
+/**
+ * Hardened SAX parsing for xml files read from repositories that are not trusted.
+ *
+ * Every reader rejects a DOCTYPE as soon as it starts, before any entity is declared, and has external entities,
+ * external DTDs and XInclude disabled as well, so there is no XXE and no entity expansion. On top of that each
+ * parse is limited in size, element depth and time, and fails with a LimitException once one is exceeded, so a
+ * crafted or huge file is rejected quickly instead of stalling the run or exhausting memory.
+ */
+final class XmlLimits {
+    static final XmlLimits DEFAULT = new XmlLimits(32L << 20, 100, TimeUnit.SECONDS.toMillis(10));
+
+    // only reached if a parser ignores the DOCTYPE rejection, the JDK's own limit with secure processing is 64000
+    private static final String ENTITY_EXPANSION_LIMIT = "http://www.oracle.com/xml/jaxp/properties/entityExpansionLimit";
+    private static final int MAX_ENTITY_EXPANSIONS = 100;
+
+    final long maxBytes;
+    final int maxDepth;
+    final long timeoutMillis;
+
+    /**
+     * @param maxBytes      the largest file parsed, in bytes
+     * @param maxDepth      the deepest element nesting parsed
+     * @param timeoutMillis the longest a single file may take to parse
+     */
+    XmlLimits(long maxBytes, int maxDepth, long timeoutMillis) {
+        this.maxBytes = maxBytes;
+        this.maxDepth = maxDepth;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Thrown when a file exceeds one of the limits or declares a DOCTYPE. Unlike other parse errors it says nothing
+     * about whether the file is a valid run configuration, so the file is skipped even when not validating.
+     */
+    static class LimitException extends SAXException {
+        LimitException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Thrown when opening a file whose size is known to exceed maxBytes up front, for example from the header of a
+     * git object, so it is rejected before anything is read into memory.
+     */
+    static class TooLargeException extends IOException {
+        TooLargeException(long maxBytes) {
+            super(tooLarge(maxBytes));
+        }
+    }
+
+    private static String tooLarge(long maxBytes) {
+        return "file is larger than " + maxBytes + " bytes";
+    }
+
+    /**
+     * @return a reader that enforces these limits on every parse(InputSource) of a byte stream
+     */
+    XMLReader newReader(boolean namespaceAware) throws SAXException {
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        factory.setNamespaceAware(namespaceAware);
+        factory.setXIncludeAware(false);
+        XMLReader reader;
+        try {
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            reader = factory.newSAXParser().getXMLReader();
+        } catch (ParserConfigurationException pce) {
+            throw new SAXException(pce);
+        }
+        reader.setFeature("http://xml.org/sax/features/external-general-entities", false);
+        reader.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+        optional(reader, "http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+        try {
+            reader.setProperty(ENTITY_EXPANSION_LIMIT, Integer.toString(MAX_ENTITY_EXPANSIONS));
+        } catch (SAXNotRecognizedException | SAXNotSupportedException e) {
+            // not the JDK's parser, the DOCTYPE rejection below still applies
+        }
+        // a DOCTYPE is rejected through the lexical handler so the error is a LimitException and not a parse error
+        reader.setProperty("http://xml.org/sax/properties/lexical-handler", new DefaultHandler2() {
+            @Override
+            public void startDTD(String name, String publicId, String systemId) throws SAXException {
+                throw new LimitException("DOCTYPE is not allowed");
+            }
+        });
+        return new LimitingFilter(reader);
+    }
+
+    private static void optional(XMLReader reader, String feature, boolean value) {
+        try {
+            reader.setFeature(feature, value);
+        } catch (SAXNotRecognizedException | SAXNotSupportedException e) {
+            // the feature is specific to the JDK's parser
+        }
+    }
+
+    /**
+     * Counts the element depth and checks the deadline on every event of a parse, and limits the bytes it reads.
+     */
+    private class LimitingFilter extends XMLFilterImpl {
+        private long deadline;
+        private int depth;
+
+        LimitingFilter(XMLReader parent) {
+            super(parent);
+        }
+
+        @Override
+        public void parse(InputSource input) throws SAXException, IOException {
+            deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            depth = 0;
+            LimitedInputStream in = input.getByteStream() != null ? new LimitedInputStream(input.getByteStream()) : null;
+            if (in != null) {
+                input = new InputSource(in);
+            }
+            try {
+                super.parse(input);
+            } catch (IOException ioe) {
+                // the parser hands the stream's exception back as is
+                if (in != null && in.exceeded != null) throw new LimitException(in.exceeded);
+                throw ioe;
+            }
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes atts) throws SAXException {
+            if (++depth > maxDepth) throw new LimitException("element nesting is deeper than " + maxDepth);
+            checkDeadline();
+            super.startElement(uri, localName, qName, atts);
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            depth--;
+            super.endElement(uri, localName, qName);
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) throws SAXException {
+            checkDeadline();
+            super.characters(ch, start, length);
+        }
+
+        private void checkDeadline() throws LimitException {
+            if (System.nanoTime() - deadline > 0) throw new LimitException(timeoutMessage());
+        }
+
+        private String timeoutMessage() {
+            return "parsing took longer than " + timeoutMillis + " ms";
+        }
+
+        private class LimitedInputStream extends FilterInputStream {
+            private long read;
+            // why the stream stopped, so the parse can report it as a LimitException
+            String exceeded;
+
+            LimitedInputStream(InputStream in) {
+                super(in);
+            }
+
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) count(1);
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                if (n > 0) count(n);
+                return n;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                long skipped = super.skip(n);
+                count(skipped);
+                return skipped;
+            }
+
+            private void count(long bytes) throws IOException {
+                read += bytes;
+                if (read > maxBytes) {
+                    exceeded = tooLarge(maxBytes);
+                } else if (System.nanoTime() - deadline > 0) {
+                    exceeded = timeoutMessage();
+                } else {
+                    return;
+                }
+                throw new IOException(exceeded);
+            }
+        }
+    }
+}
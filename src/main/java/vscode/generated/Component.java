@@ -9,15 +9,21 @@
 package vscode.generated;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlAnyAttribute;
+import javax.xml.bind.annotation.XmlAnyElement;
 import javax.xml.bind.annotation.XmlAttribute;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlElements;
 import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.XmlSchemaType;
 import javax.xml.bind.annotation.XmlType;
+import javax.xml.namespace.QName;
+import org.w3c.dom.Element;
 
 
 /**
@@ -64,8 +70,12 @@ import javax.xml.bind.annotation.XmlType;
  *                                 &lt;complexType>
  *                                   &lt;complexContent>
  *                                     &lt;restriction base="{http://www.w3.org/2001/XMLSchema}anyType">
+ *                                       &lt;sequence>
+ *                                         &lt;any processContents='lax' maxOccurs="unbounded" minOccurs="0"/>
+ *                                       &lt;/sequence>
  *                                       &lt;attribute name="name" type="{http://www.w3.org/2001/XMLSchema}string" />
  *                                       &lt;attribute name="enabled" type="{http://www.w3.org/2001/XMLSchema}boolean" />
+ *                                       &lt;anyAttribute processContents='lax'/>
  *                                     &lt;/restriction>
  *                                   &lt;/complexContent>
  *                                 &lt;/complexType>
@@ -194,8 +204,12 @@ public class Component {
      *                       &lt;complexType>
      *                         &lt;complexContent>
      *                           &lt;restriction base="{http://www.w3.org/2001/XMLSchema}anyType">
+     *                             &lt;sequence>
+     *                               &lt;any processContents='lax' maxOccurs="unbounded" minOccurs="0"/>
+     *                             &lt;/sequence>
      *                             &lt;attribute name="name" type="{http://www.w3.org/2001/XMLSchema}string" />
      *                             &lt;attribute name="enabled" type="{http://www.w3.org/2001/XMLSchema}boolean" />
+     *                             &lt;anyAttribute processContents='lax'/>
      *                           &lt;/restriction>
      *                         &lt;/complexContent>
      *                       &lt;/complexType>
@@ -378,12 +392,16 @@ public class Component {
          *   &lt;complexContent>
          *     &lt;restriction base="{http://www.w3.org/2001/XMLSchema}anyType">
          *       &lt;sequence>
-         *         &lt;element name="option" minOccurs="0">
+         *         &lt;element name="option" maxOccurs="unbounded" minOccurs="0">
          *           &lt;complexType>
          *             &lt;complexContent>
          *               &lt;restriction base="{http://www.w3.org/2001/XMLSchema}anyType">
+         *                 &lt;sequence>
+         *                   &lt;any processContents='lax' maxOccurs="unbounded" minOccurs="0"/>
+         *                 &lt;/sequence>
          *                 &lt;attribute name="name" type="{http://www.w3.org/2001/XMLSchema}string" />
          *                 &lt;attribute name="enabled" type="{http://www.w3.org/2001/XMLSchema}boolean" />
+         *                 &lt;anyAttribute processContents='lax'/>
          *               &lt;/restriction>
          *             &lt;/complexContent>
          *           &lt;/complexType>
@@ -403,7 +421,7 @@ public class Component {
         })
         public static class Method {
 
-            protected Component.Configuration.Method.Option option;
+            protected List<Component.Configuration.Method.Option> option;
             @XmlAttribute(name = "v")
             @XmlSchemaType(name = "unsignedByte")
             protected Short v;
@@ -411,25 +429,30 @@ public class Component {
             /**
              * Gets the value of the option property.
              * 
-             * @return
-             *     possible object is
-             *     {@link Component.Configuration.Method.Option }
-             *     
-             */
-            public Component.Configuration.Method.Option getOption() {
-                return option;
-            }
-
-            /**
-             * Sets the value of the option property.
+             * <p>
+             * This accessor method returns a reference to the live list,
+             * not a snapshot. Therefore any modification you make to the
+             * returned list will be present inside the JAXB object.
+             * This is why there is not a <CODE>set</CODE> method for the option property.
+             * 
+             * <p>
+             * For example, to add a new item, do as follows:
+             * <pre>
+             *    getOption().add(newItem);
+             * </pre>
+             * 
+             * 
+             * <p>
+             * Objects of the following type(s) are allowed in the list
+             * {@link Component.Configuration.Method.Option }
+             * 
              * 
-             * @param value
-             *     allowed object is
-             *     {@link Component.Configuration.Method.Option }
-             *     
              */
-            public void setOption(Component.Configuration.Method.Option value) {
-                this.option = value;
+            public List<Component.Configuration.Method.Option> getOption() {
+                if (option == null) {
+                    option = new ArrayList<Component.Configuration.Method.Option>();
+                }
+                return this.option;
             }
 
             /**
@@ -466,8 +489,12 @@ public class Component {
              * &lt;complexType>
              *   &lt;complexContent>
              *     &lt;restriction base="{http://www.w3.org/2001/XMLSchema}anyType">
+             *       &lt;sequence>
+             *         &lt;any processContents='lax' maxOccurs="unbounded" minOccurs="0"/>
+             *       &lt;/sequence>
              *       &lt;attribute name="name" type="{http://www.w3.org/2001/XMLSchema}string" />
              *       &lt;attribute name="enabled" type="{http://www.w3.org/2001/XMLSchema}boolean" />
+             *       &lt;anyAttribute processContents='lax'/>
              *     &lt;/restriction>
              *   &lt;/complexContent>
              * &lt;/complexType>
@@ -476,13 +503,49 @@ public class Component {
              * 
              */
             @XmlAccessorType(XmlAccessType.FIELD)
-            @XmlType(name = "")
+            @XmlType(name = "", propOrder = {
+                "any"
+            })
             public static class Option {
 
+                @XmlAnyElement(lax = true)
+                protected List<Object> any;
                 @XmlAttribute(name = "name")
                 protected String name;
                 @XmlAttribute(name = "enabled")
                 protected Boolean enabled;
+                @XmlAnyAttribute
+                private Map<QName, String> otherAttributes = new HashMap<QName, String>();
+
+                /**
+                 * Gets the value of the any property.
+                 * 
+                 * <p>
+                 * This accessor method returns a reference to the live list,
+                 * not a snapshot. Therefore any modification you make to the
+                 * returned list will be present inside the JAXB object.
+                 * This is why there is not a <CODE>set</CODE> method for the any property.
+                 * 
+                 * <p>
+                 * For example, to add a new item, do as follows:
+                 * <pre>
+                 *    getAny().add(newItem);
+                 * </pre>
+                 * 
+                 * 
+                 * <p>
+                 * Objects of the following type(s) are allowed in the list
+                 * {@link Object }
+                 * {@link Element }
+                 * 
+                 * 
+                 */
+                public List<Object> getAny() {
+                    if (any == null) {
+                        any = new ArrayList<Object>();
+                    }
+                    return this.any;
+                }
 
                 /**
                  * Gets the value of the name property.
@@ -532,6 +595,24 @@ public class Component {
                     this.enabled = value;
                 }
 
+                /**
+                 * Gets a map that contains attributes that aren't bound to any typed property on this class.
+                 * 
+                 * <p>
+                 * the map is keyed by the name of the attribute and 
+                 * the value is the string value of the attribute.
+                 * 
+                 * the map returned by this method is live, and you can add new attribute
+                 * by updating the map directly. Because of this design, there's no setter.
+                 * 
+                 * 
+                 * @return
+                 *     always non-null
+                 */
+                public Map<QName, String> getOtherAttributes() {
+                    return otherAttributes;
+                }
+
             }
 
         }
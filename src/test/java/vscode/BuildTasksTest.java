@@ -0,0 +1,64 @@
+package vscode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Unit tests for BuildTasks.
+ */
+public class BuildTasksTest
+{
+    @Test
+    public void sharesOneIncrementalBuildBetweenMakeSteps() throws Exception
+    {
+        BuildTasks tasks = new BuildTasks();
+        assertTrue(tasks.isEmpty());
+        assertEquals(BuildTasks.JAVA_BUILD, tasks.taskFor("Make"));
+        assertEquals(BuildTasks.JAVA_BUILD, tasks.taskFor("Make"));
+        assertNull(tasks.taskFor("BuildArtifacts"));
+
+        StringWriter json = new StringWriter();
+        tasks.writeTasks(json);
+        assertEquals("{\n"
+                + "  \"version\": \"2.0.0\",\n"
+                + "  \"tasks\": [\n"
+                + "    {\n"
+                + "      \"label\": \"java (build)\",\n"
+                + "      \"type\": \"java (build)\",\n"
+                + "      \"paths\": [\n"
+                + "        \"${workspace}\"\n"
+                + "      ],\n"
+                + "      \"isFullBuild\": false,\n"
+                + "      \"problemMatcher\": []\n"
+                + "    }\n"
+                + "  ]\n"
+                + "}", json.toString());
+    }
+
+    @Test
+    public void addsTheBuildToTheUsersOwnTasks() throws Exception
+    {
+        BuildTasks tasks = new BuildTasks();
+        tasks.taskFor("Make");
+        JsonObject existing = JsonParser.parseString("{\"version\": \"2.0.0\", \"tasks\": [{\"label\": \"lint\"}],"
+                + " \"inputs\": []}").getAsJsonObject();
+        assertTrue(tasks.isMissingFrom(existing));
+
+        StringWriter json = new StringWriter();
+        tasks.writeTasks(json, existing);
+        JsonObject merged = JsonParser.parseString(json.toString()).getAsJsonObject();
+        assertEquals(2, merged.getAsJsonArray("tasks").size());
+        assertEquals("lint", merged.getAsJsonArray("tasks").get(0).getAsJsonObject().get("label").getAsString());
+        assertTrue(merged.has("inputs"));
+        assertFalse(tasks.isMissingFrom(merged));
+    }
+}
@@ -0,0 +1,90 @@
+package vscode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for ClassIndex.
+ */
+public class ClassIndexTest
+{
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private File classes;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        System.setProperty("intellijtovscode.cache", temp.newFolder("cache").getPath());
+        classes = new File(App.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+    }
+
+    @After
+    public void tearDown()
+    {
+        // the cache folder is deleted with the temporary folder, later tests must not point at it
+        System.clearProperty("intellijtovscode.cache");
+    }
+
+    @Test
+    public void verifiesMainClassesInClassFolders() throws Exception
+    {
+        ClassIndex index = ClassIndex.build(Collections.singletonList(classes), Collections.emptyList());
+        assertNull(index.verifyMain("vscode.App"));
+        assertEquals("no main method", index.verifyMain("vscode.Converter"));
+        assertEquals("class not found", index.verifyMain("vscode.Missing"));
+    }
+
+    @Test
+    public void verifiesMainClassesInCachedJars() throws Exception
+    {
+        File jar = jar("app.jar", "vscode/App.class");
+        ClassIndex index = ClassIndex.build(Collections.emptyList(), Collections.singletonList(jar));
+        assertEquals(0, index.cachedJars());
+        assertNull(index.verifyMain("vscode.App"));
+
+        index = ClassIndex.build(Collections.emptyList(), Collections.singletonList(jar));
+        assertEquals(1, index.cachedJars());
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void firstJarOnTheClasspathWins() throws Exception
+    {
+        File withMain = jar("with-main.jar", "vscode/App.class");
+        // the same class name with the bytes of a class that has no main method
+        File withoutMain = jar("without-main.jar", "vscode/Converter.class");
+        for (int i = 0; i < 10; i++) {
+            assertNull(ClassIndex.build(Collections.emptyList(), Arrays.asList(withMain, withoutMain))
+                    .verifyMain("vscode.App"));
+            assertEquals("no main method", ClassIndex.build(Collections.emptyList(), Arrays.asList(withoutMain, withMain))
+                    .verifyMain("vscode.App"));
+        }
+    }
+
+    private File jar(String name, String classFile) throws Exception
+    {
+        File jar = temp.newFile(name);
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar))) {
+            out.putNextEntry(new ZipEntry("vscode/App.class"));
+            out.write(Files.readAllBytes(new File(classes, classFile).toPath()));
+            out.closeEntry();
+        }
+        return jar;
+    }
+}
@@ -0,0 +1,76 @@
+package vscode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.gson.JsonPrimitive;
+
+/**
+ * Unit tests for ConfigSorter.
+ */
+public class ConfigSorterTest
+{
+    @Test
+    public void mergesSpilledRunsInTheInMemoryOrder() throws Exception
+    {
+        List<LaunchConfiguration> expected = new ArrayList<>();
+        try (ConfigSorter sorter = new ConfigSorter(512)) {
+            for (int i = 0; i < 50; i++) {
+                LaunchConfiguration config = new LaunchConfiguration();
+                // duplicate names check that ties keep the order the configs were added in
+                config.name = "Config" + (i * 7) % 20;
+                config.cwd = "${workspaceFolder}/" + i;
+                config.args = Arrays.asList("--index", Integer.toString(i));
+                config.folder = i % 2 == 0 ? "api" : null;
+                config.preLaunchTask = BuildTasks.JAVA_BUILD;
+                config.extension("vmArgs", new JsonPrimitive("-Xmx" + i + "m"));
+                expected.add(config);
+                sorter.add(config);
+            }
+            assertTrue(sorter.runs() > 1);
+            Collections.sort(expected, ConfigSorter.BY_NAME);
+
+            List<LaunchConfiguration> sorted = new ArrayList<>();
+            Iterable<LaunchConfiguration> merged = sorter.sorted();
+            // the budget only has room to merge two runs at a time
+            assertTrue(sorter.passes() > 1);
+            for (LaunchConfiguration config : merged) {
+                sorted.add(config);
+            }
+            assertEquals(expected.size(), sorted.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).name, sorted.get(i).name);
+                assertEquals(expected.get(i).cwd, sorted.get(i).cwd);
+                assertEquals(expected.get(i).args, sorted.get(i).args);
+                assertEquals(expected.get(i).folder, sorted.get(i).folder);
+                assertEquals(expected.get(i).preLaunchTask, sorted.get(i).preLaunchTask);
+                assertEquals(expected.get(i).extensions, sorted.get(i).extensions);
+            }
+        }
+    }
+
+    @Test
+    public void sortsInMemoryWithoutABudget() throws Exception
+    {
+        try (ConfigSorter sorter = new ConfigSorter(Long.MAX_VALUE)) {
+            for (String name : Arrays.asList("b", "c", "a")) {
+                LaunchConfiguration config = new LaunchConfiguration();
+                config.name = name;
+                sorter.add(config);
+            }
+            assertEquals(0, sorter.runs());
+            List<String> names = new ArrayList<>();
+            for (LaunchConfiguration config : sorter.sorted()) {
+                names.add(config.name);
+            }
+            assertEquals(Arrays.asList("a", "b", "c"), names);
+        }
+    }
+}
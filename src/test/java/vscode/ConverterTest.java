@@ -0,0 +1,73 @@
+package vscode;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import vscode.generated.Component;
+
+/**
+ * Unit tests for Converter.
+ */
+public class ConverterTest
+{
+    @Rule
+    public TemporaryFolder directory = new TemporaryFolder();
+
+    @Before
+    public void setUp() throws Exception
+    {
+        // the module index of the test project is cached here instead of the user's cache folder
+        System.setProperty("intellijtovscode.cache", directory.newFolder("cache").getPath());
+    }
+
+    @After
+    public void tearDown()
+    {
+        System.clearProperty("intellijtovscode.cache");
+    }
+
+    @Test
+    public void mapsMakeOntoTheJavaBuildAndCountsEveryOtherStepOncePerConfig() throws Exception
+    {
+        Component component;
+        try (InputStream in = getClass().getResourceAsStream("/beforeLaunch/Packager.xml")) {
+            // steps with their own settings are still valid run configs
+            component = new RunConfigParser(true).parse(in);
+        }
+        Converter converter = new Converter();
+        LaunchConfiguration config = converter.toLaunchConfig(component.getConfiguration());
+
+        assertEquals(BuildTasks.JAVA_BUILD, config.preLaunchTask);
+        assertEquals("ingest/com.acme.ingest.Packager", config.mainClass);
+        Map<String, Integer> unsupported = converter.unsupportedSteps();
+        assertEquals(2, unsupported.size());
+        assertEquals(Integer.valueOf(1), unsupported.get("BuildArtifacts"));
+        assertEquals(Integer.valueOf(1), unsupported.get("Maven.BeforeRunTask"));
+    }
+
+    @Test
+    public void reindexesFilesWhenTheConversionOptionsChange() throws Exception
+    {
+        String runConfigs = new File(getClass().getResource("/project/.idea/runConfigurations").toURI()).getPath();
+        File index = directory.newFolder("index");
+        List<String> api = Collections.singletonList(RunConfigIndex.term(RunConfigIndex.MODULE, "acme-api"));
+
+        new Converter().resolveModules(true).index(index).convert(runConfigs, null);
+        assertEquals(1, new RunConfigIndex(index).query(api).size());
+
+        // the files did not change, but their module names are no longer resolved
+        new Converter().index(index).convert(runConfigs, null);
+        assertEquals(0, new RunConfigIndex(index).query(api).size());
+    }
+}
@@ -0,0 +1,44 @@
+package vscode;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for GitRepository.
+ */
+public class GitRepositoryTest
+{
+    private static final byte[] BASE = "abcd".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void rejectsDeltasThatReachPastTheirBuffers() throws Exception
+    {
+        // base size 4, result size 4, copy 2 bytes from offset 1 and insert "xy"
+        assertArrayEquals("bcxy".getBytes(StandardCharsets.UTF_8), GitRepository.applyDelta(BASE,
+                new byte[] { 4, 4, (byte) 0x91, 1, 2, 2, 'x', 'y' }, Long.MAX_VALUE));
+
+        assertCorrupt(4, 4, 0x91, 2, 4);            // copies past the end of the base
+        assertCorrupt(4, 2, 0x91, 0, 4);            // copies past the end of the result
+        assertCorrupt(4, 4, 4, 'x', 'y');           // inserts more than the delta holds
+        assertCorrupt(4, 4, 0x91);                  // ends within a copy instruction
+        assertCorrupt(4, 0x80);                     // ends within the result size
+    }
+
+    private static void assertCorrupt(int... delta) throws Exception
+    {
+        byte[] bytes = new byte[delta.length];
+        for (int i = 0; i < delta.length; i++) {
+            bytes[i] = (byte) delta[i];
+        }
+        try {
+            GitRepository.applyDelta(BASE, bytes, Long.MAX_VALUE);
+            fail("expected an IOException");
+        } catch (IOException expected) {
+        }
+    }
+}
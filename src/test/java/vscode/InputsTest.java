@@ -0,0 +1,156 @@
+package vscode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for Inputs and the GitRepository reader behind it.
+ */
+public class InputsTest
+{
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void findsRunConfigurationsInsideArchives() throws Exception
+    {
+        File zip = temp.newFile("snapshot.zip");
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zip))) {
+            out.putNextEntry(new ZipEntry("acme/.idea/runConfigurations/Api.xml"));
+            out.write("<component/>".getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+            out.putNextEntry(new ZipEntry("acme/.idea/workspace.xml"));
+            out.write("<project/>".getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+        try (Inputs inputs = new Inputs(null)) {
+            List<Inputs.Entry> entries = inputs.folder(zip.getPath());
+            assertEquals(1, entries.size());
+            assertEquals("Api.xml", entries.get(0).name());
+            assertEquals("<component/>", read(entries.get(0)));
+            assertEquals("<project/>", read(inputs.file(zip.getPath() + "!/acme/.idea/workspace.xml")));
+            assertNull(inputs.file(zip.getPath() + "!/acme/.idea/missing.xml"));
+        }
+        assertTrue(Inputs.inArchive(zip.getPath()));
+        assertTrue(Inputs.inArchive(zip.getPath() + "!/acme/.idea/runConfigurations"));
+        assertFalse(Inputs.inArchive(temp.getRoot().getPath()));
+    }
+
+    @Test
+    public void readsRunConfigurationsAtGitRevisions() throws Exception
+    {
+        File repo = temp.newFolder("repo");
+        assumeTrue(git(repo, "init", "-q"));
+        File runConfigs = new File(repo, ".idea/runConfigurations");
+        runConfigs.mkdirs();
+        File api = new File(runConfigs, "Api.xml");
+        StringBuilder content = new StringBuilder("<component>\n");
+        for (int i = 0; i < 200; i++) {
+            content.append("  <!-- padding so that the second version is stored as a delta ").append(i).append(" -->\n");
+        }
+        write(api, content + "</component>\n");
+        commit(repo, "first");
+        assertTrue(git(repo, "tag", "first"));
+        write(api, content + "<!-- second -->\n</component>\n");
+        commit(repo, "second");
+        // moves every object into a pack, storing one of the two versions as a delta of the other
+        assertTrue(git(repo, "gc", "-q", "--aggressive"));
+
+        try (Inputs inputs = new Inputs("first")) {
+            List<Inputs.Entry> entries = inputs.folder(runConfigs.getPath());
+            assertEquals(1, entries.size());
+            assertEquals(content + "</component>\n", read(entries.get(0)));
+        }
+        try (Inputs inputs = new Inputs("HEAD")) {
+            assertEquals(content + "<!-- second -->\n</component>\n", read(inputs.file(api.getPath())));
+            assertNull(inputs.folder(new File(repo, "missing").getPath()));
+        }
+    }
+
+    @Test
+    public void rejectsGitBlobsOverTheSizeLimitBeforeReadingThem() throws Exception
+    {
+        File repo = temp.newFolder("repo");
+        assumeTrue(git(repo, "init", "-q"));
+        File api = new File(repo, ".idea/runConfigurations/Api.xml");
+        api.getParentFile().mkdirs();
+        StringBuilder content = new StringBuilder("<component>\n");
+        for (int i = 0; i < 200; i++) {
+            content.append("  <!-- padding ").append(i).append(" -->\n");
+        }
+        write(api, content + "</component>\n");
+        commit(repo, "first");
+        assertTrue(git(repo, "tag", "first"));
+        write(api, content + "<!-- second -->\n</component>\n");
+        commit(repo, "second");
+
+        // the first pass reads loose objects, the second the pack with one of the versions stored as a delta
+        for (int pass = 0; pass < 2; pass++) {
+            for (String revision : Arrays.asList("first", "HEAD")) {
+                try (Inputs inputs = new Inputs(revision, 1024)) {
+                    inputs.file(api.getPath()).open();
+                    fail("expected a TooLargeException");
+                } catch (XmlLimits.TooLargeException tle) {
+                    assertEquals("file is larger than 1024 bytes", tle.getMessage());
+                }
+                try (Inputs inputs = new Inputs(revision, 1 << 20)) {
+                    assertTrue(read(inputs.file(api.getPath())).startsWith("<component>"));
+                }
+            }
+            assertTrue(git(repo, "gc", "-q", "--aggressive"));
+        }
+    }
+
+    private static void commit(File repo, String message) throws Exception
+    {
+        assertTrue(git(repo, "add", "-A"));
+        assertTrue(git(repo, "-c", "user.name=test", "-c", "user.email=test@example.com", "commit", "-q", "-m", message));
+    }
+
+    private static boolean git(File repo, String... args) throws InterruptedException
+    {
+        String[] command = new String[args.length + 1];
+        command[0] = "git";
+        System.arraycopy(args, 0, command, 1, args.length);
+        try {
+            return new ProcessBuilder(command).directory(repo).redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.appendTo(new File(repo.getParentFile(), "git.log")))
+                    .start().waitFor() == 0;
+        } catch (IOException ioe) {
+            // git is not installed
+            return false;
+        }
+    }
+
+    private static void write(File file, String content) throws IOException
+    {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(Inputs.Entry entry) throws IOException
+    {
+        try (InputStream in = entry.open()) {
+            return new String(IOUtils.toByteArray(in), StandardCharsets.UTF_8);
+        }
+    }
+}
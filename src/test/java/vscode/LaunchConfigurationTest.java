@@ -0,0 +1,49 @@
+package vscode;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import com.google.gson.JsonPrimitive;
+
+/**
+ * Unit tests for LaunchConfiguration.
+ */
+public class LaunchConfigurationTest
+{
+    @Test
+    public void writesKeysInCanonicalOrder() throws Exception
+    {
+        LaunchConfiguration config = new LaunchConfiguration();
+        config.extension("vmArgs", new JsonPrimitive("-Xmx1g"));
+        config.preLaunchTask = "build";
+        config.args = Arrays.asList("--profile=prod");
+        config.mainClass = "ingest/com.acme.IngestMain";
+        config.cwd = "${workspaceFolder}";
+        config.name = "IngestMain";
+
+        StringWriter json = new StringWriter();
+        LaunchConfiguration.writeLaunch(json, Collections.singletonList(config));
+        assertEquals("{\n"
+                + "  \"version\": \"0.2.0\",\n"
+                + "  \"configurations\": [\n"
+                + "    {\n"
+                + "      \"type\": \"java\",\n"
+                + "      \"name\": \"IngestMain\",\n"
+                + "      \"request\": \"launch\",\n"
+                + "      \"cwd\": \"${workspaceFolder}\",\n"
+                + "      \"mainClass\": \"ingest/com.acme.IngestMain\",\n"
+                + "      \"args\": [\n"
+                + "        \"--profile\\u003dprod\"\n"
+                + "      ],\n"
+                + "      \"preLaunchTask\": \"build\",\n"
+                + "      \"vmArgs\": \"-Xmx1g\"\n"
+                + "    }\n"
+                + "  ]\n"
+                + "}", json.toString());
+    }
+}
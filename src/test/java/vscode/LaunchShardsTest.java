@@ -0,0 +1,164 @@
+package vscode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for LaunchShards.
+ */
+public class LaunchShardsTest
+{
+    @Rule
+    public TemporaryFolder project = new TemporaryFolder();
+
+    @Test
+    public void writesAShardPerModuleFolderAndAWorkspace() throws Exception
+    {
+        File root = project.getRoot();
+        LaunchShards shards = new LaunchShards(root);
+        File workspace = shards.write(configs(), new BuildTasks());
+
+        assertEquals(2, shards.written());
+        assertEquals(new File(root.getCanonicalFile(), root.getName() + ".code-workspace"), workspace);
+        String api = read(new File(root, "api/.vscode/launch.json"));
+        assertTrue(api.contains("\"cwd\": \"${workspaceFolder:" + root.getName() + "}/api\""));
+        assertFalse(api.contains("IngestMain"));
+        assertTrue(read(new File(root, ".vscode/launch.json")).contains("\"cwd\": \"${workspaceFolder}\""));
+        assertTrue(read(workspace).contains("\"path\": \"api\""));
+    }
+
+    @Test
+    public void onlyRewritesShardsThatChanged() throws Exception
+    {
+        new LaunchShards(project.getRoot()).write(configs(), new BuildTasks());
+
+        List<LaunchConfiguration> configs = configs();
+        configs.get(1).cwd = "${workspaceFolder}";
+        LaunchShards shards = new LaunchShards(project.getRoot());
+        shards.write(configs, new BuildTasks());
+        assertEquals(1, shards.written());
+        assertEquals(1, shards.unchanged());
+    }
+
+    @Test
+    public void leavesTheFoldersOfUnchangedFilesUntouched() throws Exception
+    {
+        File root = project.getRoot();
+        new LaunchShards(root).write(configs(), new BuildTasks());
+        String api = read(new File(root, "api/.vscode/launch.json"));
+        // the ModuleIndex cache is only kept while the project folders keep their mtime
+        assertTrue(root.setLastModified(1000000000000L));
+
+        new LaunchShards(root).write(configs(), new BuildTasks());
+        assertEquals(1000000000000L, root.lastModified());
+
+        // a file that changes part way through is still written whole
+        List<LaunchConfiguration> configs = configs();
+        configs.get(1).name = "ApiServer2";
+        new LaunchShards(root).write(configs, new BuildTasks());
+        assertEquals(api.replace("\"ApiServer\"", "\"ApiServer2\""), read(new File(root, "api/.vscode/launch.json")));
+        assertEquals(0, new File(root, "api/.vscode").list((dir, name) -> name.endsWith(".tmp")).length);
+    }
+
+    @Test
+    public void mergesIntoTheUsersWorkspace() throws Exception
+    {
+        File root = project.getRoot();
+        File workspace = new File(root, root.getName() + ".code-workspace");
+        Files.write(workspace.toPath(), ("{\n"
+                + "  // opened by the whole team\n"
+                + "  \"folders\": [{\"path\": \".\"}, {\"path\": \"../docs\"}],\n"
+                + "  \"settings\": {\"editor.tabSize\": 4},\n"
+                + "  \"tasks\": {\"version\": \"2.0.0\", \"tasks\": [{\"label\": \"lint\"}]}\n"
+                + "}").getBytes(StandardCharsets.UTF_8));
+        BuildTasks tasks = new BuildTasks();
+        tasks.taskFor("Make");
+        LaunchShards shards = new LaunchShards(root);
+        shards.write(configs(), tasks);
+
+        assertNull(shards.workspaceProblem());
+        String merged = read(workspace);
+        assertTrue(merged.contains("\"name\": \"" + root.getName() + "\""));
+        assertTrue(merged.contains("\"path\": \"api\""));
+        assertTrue(merged.contains("\"path\": \"../docs\""));
+        assertTrue(merged.contains("\"editor.tabSize\": 4"));
+        assertTrue(merged.contains("\"label\": \"lint\""));
+        assertTrue(merged.contains("\"label\": \"java (build)\""));
+        assertEquals(merged.indexOf("\"path\": \".\""), merged.lastIndexOf("\"path\": \".\""));
+    }
+
+    @Test
+    public void leavesAWorkspaceItCannotReadAsItIs() throws Exception
+    {
+        File root = project.getRoot();
+        File workspace = new File(root, root.getName() + ".code-workspace");
+        Files.write(workspace.toPath(), "{\"folders\": ".getBytes(StandardCharsets.UTF_8));
+        LaunchShards shards = new LaunchShards(root);
+        shards.write(configs(), new BuildTasks());
+
+        assertNotNull(shards.workspaceProblem());
+        assertEquals("{\"folders\": ", read(workspace));
+        assertEquals(2, shards.written());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsFoldersThatAreNotGroupedTogether() throws Exception
+    {
+        List<LaunchConfiguration> configs = configs();
+        new LaunchShards(project.getRoot()).write(Arrays.asList(configs.get(1), configs.get(0)), new BuildTasks());
+    }
+
+    @Test
+    public void onlyShardsFoldersInsideTheProject() throws Exception
+    {
+        assertEquals("api", LaunchShards.shardFolder("api/./"));
+        assertNull(LaunchShards.shardFolder("../evil"));
+        assertNull(LaunchShards.shardFolder("api/../../evil"));
+        assertNull(LaunchShards.shardFolder(new File("/tmp/evil").getAbsolutePath()));
+
+        List<LaunchConfiguration> configs = configs();
+        configs.get(1).folder = "../evil";
+        try {
+            new LaunchShards(project.getRoot()).write(configs, new BuildTasks());
+            fail();
+        } catch (IOException expected) {
+            assertFalse(new File(project.getRoot(), "../evil").exists());
+        }
+    }
+
+    private static List<LaunchConfiguration> configs()
+    {
+        LaunchConfiguration api = new LaunchConfiguration();
+        api.name = "ApiServer";
+        api.cwd = "${workspaceFolder}/api";
+        api.mainClass = "acme-api/com.acme.api.ApiServer";
+        api.folder = "api";
+        LaunchConfiguration ingest = new LaunchConfiguration();
+        ingest.name = "IngestMain";
+        ingest.cwd = "${workspaceFolder}";
+        ingest.mainClass = "ingest/com.acme.IngestMain";
+        ingest.folder = "";
+        // ordered LaunchShards.BY_FOLDER, the project root first
+        return Arrays.asList(ingest, api);
+    }
+
+    private static String read(File file) throws Exception
+    {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+}
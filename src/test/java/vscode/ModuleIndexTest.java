@@ -0,0 +1,68 @@
+package vscode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for ModuleIndex.
+ */
+public class ModuleIndexTest
+{
+    @Rule
+    public TemporaryFolder cache = new TemporaryFolder();
+
+    private File project;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        System.setProperty("intellijtovscode.cache", cache.getRoot().getPath());
+        project = new File(getClass().getResource("/project").toURI());
+    }
+
+    @After
+    public void tearDown()
+    {
+        // the cache folder is deleted with the temporary folder, later tests must not point at it
+        System.clearProperty("intellijtovscode.cache");
+    }
+
+    @Test
+    public void resolvesModuleNamesFromImlMavenAndGradleFiles() throws Exception
+    {
+        ModuleIndex index = ModuleIndex.load(project);
+        assertEquals("acme-api", index.projectName("api"));
+        assertEquals("api", index.entry("api").directory);
+        assertEquals("ingest", index.projectName("acme.ingest.main"));
+        assertEquals("", index.entry("acme").directory);
+        assertEquals("unknown", index.projectName("unknown"));
+    }
+
+    @Test
+    public void skipsBuildFilesOverTheConfiguredLimits() throws Exception
+    {
+        // the pom that names the api module is larger than 16 bytes
+        ModuleIndex index = ModuleIndex.load(project, new XmlLimits(16, 100, 10000));
+        assertEquals("api", index.projectName("api"));
+    }
+
+    @Test
+    public void readsTheCacheUntilAScannedFolderChanges() throws Exception
+    {
+        assertFalse(ModuleIndex.load(project).isCached());
+        assertTrue(ModuleIndex.load(project).isCached());
+
+        File api = new File(project, "api");
+        assertTrue(api.setLastModified(api.lastModified() - 1000));
+        assertFalse(ModuleIndex.load(project).isCached());
+    }
+}
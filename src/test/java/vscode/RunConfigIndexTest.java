@@ -0,0 +1,110 @@
+package vscode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for RunConfigIndex.
+ */
+public class RunConfigIndexTest
+{
+    @Rule
+    public TemporaryFolder directory = new TemporaryFolder();
+
+    @Test
+    public void findsConfigsByMainClassModuleNameAndArguments() throws Exception
+    {
+        RunConfigIndex index = new RunConfigIndex(directory.getRoot());
+        index.put("/acme/IngestMain.xml", "1", "/acme", Collections.singletonList(
+                config("IngestMain", "ingest/com.acme.IngestMain", "--profile=prod", "--threads", "4")));
+        index.put("/acme/ApiServer.xml", "2", "/acme", Collections.singletonList(
+                config("Api Server", "acme-api/com.acme.api.ApiServer", "--profile=dev")));
+        index.save();
+
+        // a fresh instance only has what was written to disk
+        RunConfigIndex saved = new RunConfigIndex(directory.getRoot());
+        assertEquals(Arrays.asList("IngestMain"), names(saved, RunConfigIndex.term(RunConfigIndex.MAIN_CLASS, "com.acme.IngestMain")));
+        assertEquals(Arrays.asList("IngestMain"), names(saved, RunConfigIndex.term(RunConfigIndex.MAIN_CLASS, "IngestMain")));
+        assertEquals(Arrays.asList("Api Server"), names(saved, RunConfigIndex.term(RunConfigIndex.MODULE, "acme-api")));
+        assertEquals(Arrays.asList("IngestMain"), names(saved, RunConfigIndex.term(RunConfigIndex.NAME, "ingest")));
+        assertEquals(Arrays.asList("Api Server"), names(saved, RunConfigIndex.term(RunConfigIndex.NAME, "server")));
+        assertEquals(Arrays.asList("IngestMain"), names(saved, RunConfigIndex.term(RunConfigIndex.ARG, "--profile=prod")));
+        assertEquals(Arrays.asList("Api Server", "IngestMain"), names(saved, RunConfigIndex.term(RunConfigIndex.ARG, "--profile")));
+        assertEquals(Collections.emptyList(), names(saved, RunConfigIndex.term(RunConfigIndex.ARG, "--profile=prod"),
+                RunConfigIndex.term(RunConfigIndex.MODULE, "acme-api")));
+    }
+
+    @Test
+    public void replacesChangedFilesAndRemovesMissingOnes() throws Exception
+    {
+        RunConfigIndex index = new RunConfigIndex(directory.getRoot());
+        index.put("/acme/IngestMain.xml", "1", "/acme", Collections.singletonList(config("IngestMain", "com.acme.IngestMain")));
+        index.put("/acme/ApiServer.xml", "2", "/acme", Collections.singletonList(config("ApiServer", "com.acme.ApiServer")));
+        index.save();
+
+        RunConfigIndex update = new RunConfigIndex(directory.getRoot());
+        assertTrue(update.isCurrent("/acme/IngestMain.xml", "1"));
+        assertFalse(update.isCurrent("/acme/IngestMain.xml", "3"));
+        update.put("/acme/IngestMain.xml", "3", "/acme", Collections.singletonList(config("IngestMain", "com.acme.Ingest")));
+        assertEquals(1, update.removeMissing("/acme/", Collections.singleton("/acme/IngestMain.xml")));
+        update.save();
+
+        RunConfigIndex saved = new RunConfigIndex(directory.getRoot());
+        assertEquals(Collections.emptyList(), names(saved, RunConfigIndex.term(RunConfigIndex.MAIN_CLASS, "com.acme.IngestMain")));
+        assertEquals(Arrays.asList("IngestMain"), names(saved, RunConfigIndex.term(RunConfigIndex.MAIN_CLASS, "com.acme.Ingest")));
+        assertEquals(Collections.emptyList(), names(saved, RunConfigIndex.term(RunConfigIndex.NAME, "api")));
+    }
+
+    @Test
+    public void ignoresASaveThatWasInterrupted() throws Exception
+    {
+        RunConfigIndex index = new RunConfigIndex(directory.getRoot());
+        index.put("/acme/IngestMain.xml", "1", "/acme", Collections.singletonList(config("IngestMain", "com.acme.IngestMain")));
+        index.save();
+
+        // what a save that stopped before switching to its generation leaves behind
+        File interrupted = new File(directory.getRoot(), "generation-2");
+        assertTrue(interrupted.mkdir());
+        Files.write(new File(interrupted, "manifest.json").toPath(), "{\"nextId\": 0".getBytes(StandardCharsets.UTF_8));
+
+        RunConfigIndex update = new RunConfigIndex(directory.getRoot());
+        assertTrue(update.isCurrent("/acme/IngestMain.xml", "1"));
+        update.put("/acme/ApiServer.xml", "2", "/acme", Collections.singletonList(config("ApiServer", "com.acme.ApiServer")));
+        update.save();
+
+        RunConfigIndex saved = new RunConfigIndex(directory.getRoot());
+        assertEquals(Arrays.asList("IngestMain"), names(saved, RunConfigIndex.term(RunConfigIndex.MAIN_CLASS, "IngestMain")));
+        assertEquals(Arrays.asList("ApiServer"), names(saved, RunConfigIndex.term(RunConfigIndex.MAIN_CLASS, "ApiServer")));
+    }
+
+    private static LaunchConfiguration config(String name, String mainClass, String... args)
+    {
+        LaunchConfiguration config = new LaunchConfiguration();
+        config.name = name;
+        config.mainClass = mainClass;
+        config.args = args.length > 0 ? Arrays.asList(args) : null;
+        return config;
+    }
+
+    private static List<String> names(RunConfigIndex index, String... terms) throws Exception
+    {
+        List<String> names = new ArrayList<>();
+        for (RunConfigIndex.Document document : index.query(Arrays.asList(terms))) {
+            names.add(document.config.name);
+        }
+        return names;
+    }
+}
@@ -0,0 +1,91 @@
+package vscode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+import vscode.generated.Component;
+
+/**
+ * Unit tests for RunConfigParser.
+ */
+public class RunConfigParserTest
+{
+    @Test
+    public void validatesWhileParsing() throws Exception
+    {
+        try (InputStream in = getClass().getResourceAsStream("/runConfigurations/IngestMain.xml")) {
+            Component component = new RunConfigParser(true).parse(in);
+            assertEquals("IngestMain", component.getConfiguration().getName());
+        }
+    }
+
+    @Test(expected = SAXException.class)
+    public void rejectsElementsOutsideTheSchema() throws Exception
+    {
+        try (InputStream in = getClass().getResourceAsStream("/invalidRunConfigurations/Extension.xml")) {
+            new RunConfigParser(true).parse(in);
+        }
+    }
+
+    @Test
+    public void ignoresUnknownElementsWithoutValidation() throws Exception
+    {
+        try (InputStream in = getClass().getResourceAsStream("/invalidRunConfigurations/Extension.xml")) {
+            assertNotNull(new RunConfigParser(false).parse(in).getConfiguration());
+        }
+    }
+
+    @Test
+    public void extractsOnlyRunManagerConfigurationsFromTheWorkspace() throws Exception
+    {
+        List<Component.Configuration> configs = new ArrayList<>();
+        List<String> otherTypes = new ArrayList<>();
+        try (InputStream in = getClass().getResourceAsStream("/workspace.xml")) {
+            new RunConfigParser(true).parseWorkspace(in, configs::add, new RunConfigParser.Skipped() {
+                @Override
+                public void invalid(String name, SAXException se) throws SAXException {
+                    throw se;
+                }
+
+                @Override
+                public void otherType(String name, String type) {
+                    otherTypes.add(name + ":" + type);
+                }
+            });
+        }
+        assertEquals(Arrays.asList("LocalWorkerTest:JUnit"), otherTypes);
+        assertEquals(1, configs.size());
+        assertEquals("LocalWorker", configs.get(0).getName());
+        assertEquals(4, configs.get(0).getOptionOrModuleOrMethod().size());
+    }
+
+    @Test
+    public void skipsOnlyTheInvalidConfigurationsOfTheWorkspace() throws Exception
+    {
+        List<Component.Configuration> configs = new ArrayList<>();
+        List<String> invalid = new ArrayList<>();
+        try (InputStream in = getClass().getResourceAsStream("/invalidRunConfigurations/workspace.xml")) {
+            new RunConfigParser(true).parseWorkspace(in, configs::add, (name, se) -> invalid.add(name));
+        }
+        assertEquals(Arrays.asList("Extension", "Unknown"), invalid);
+        assertEquals(2, configs.size());
+        assertEquals("LocalWorker", configs.get(0).getName());
+        assertEquals(2, configs.get(0).getOptionOrModuleOrMethod().size());
+        assertEquals("Scheduler", configs.get(1).getName());
+    }
+
+    @Test
+    public void compilesTheSchemaOnce() throws Exception
+    {
+        assertSame(RunConfigParser.schema(), RunConfigParser.schema());
+    }
+}
@@ -0,0 +1,23 @@
+package vscode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for ValuePool.
+ */
+public class ValuePoolTest
+{
+    @Test
+    public void sharesEqualValues()
+    {
+        ValuePool pool = new ValuePool();
+        String first = pool.intern(new String("${workspaceFolder}"));
+        assertSame(first, pool.intern(new String("${workspaceFolder}")));
+        pool.intern("--threads");
+        assertEquals(2, pool.size());
+        assertEquals(1, pool.shared());
+    }
+}
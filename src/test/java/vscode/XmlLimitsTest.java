@@ -0,0 +1,100 @@
+package vscode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for XmlLimits.
+ */
+public class XmlLimitsTest
+{
+    private static final String CONFIG = "<component name=\"ProjectRunConfigurationManager\">"
+            + "<configuration name=\"Api\" type=\"Application\"><option name=\"MAIN_CLASS_NAME\" value=\"%s\"/>"
+            + "</configuration></component>";
+
+    @Test
+    public void parsesWithinTheLimits() throws Exception
+    {
+        RunConfigParser parser = new RunConfigParser(true, new XmlLimits(4096, 10, 10000));
+        assertEquals("Api", parser.parse(stream(String.format(CONFIG, "com.acme.Api"))).getConfiguration().getName());
+    }
+
+    @Test
+    public void rejectsExternalEntities() throws Exception
+    {
+        assertRejected(XmlLimits.DEFAULT, "<?xml version=\"1.0\"?><!DOCTYPE component [<!ENTITY xxe SYSTEM \"file:///etc/passwd\">]>"
+                + String.format(CONFIG, "&xxe;"), "DOCTYPE");
+    }
+
+    @Test
+    public void rejectsEntityExpansion() throws Exception
+    {
+        StringBuilder entities = new StringBuilder("<!ENTITY lol0 \"lol\">");
+        for (int i = 1; i < 10; i++) {
+            entities.append("<!ENTITY lol").append(i).append(" \"");
+            for (int j = 0; j < 10; j++) {
+                entities.append("&lol").append(i - 1).append(';');
+            }
+            entities.append("\">");
+        }
+        assertRejected(XmlLimits.DEFAULT, "<!DOCTYPE component [" + entities + "]>" + String.format(CONFIG, "&lol9;"), "DOCTYPE");
+    }
+
+    @Test
+    public void rejectsDeepNesting() throws Exception
+    {
+        String nested = String.join("", Collections.nCopies(20, "<option>")) + String.join("", Collections.nCopies(20, "</option>"));
+        assertRejected(new XmlLimits(1 << 20, 10, 10000), "<component>" + nested + "</component>", "nesting");
+    }
+
+    @Test
+    public void rejectsLargeFiles() throws Exception
+    {
+        String value = String.join("", Collections.nCopies(1000, "com.acme."));
+        assertRejected(new XmlLimits(4096, 10, 10000), String.format(CONFIG, value), "larger");
+    }
+
+    @Test
+    public void rejectsSlowFiles() throws Exception
+    {
+        // a stream that never ends stands in for a file that takes too long to read
+        InputStream endless = new SequenceInputStream(stream("<component><configuration name=\"Api\" type=\"Application\">"),
+                new InputStream() {
+                    @Override
+                    public int read()
+                    {
+                        return ' ';
+                    }
+                });
+        try {
+            new RunConfigParser(false, new XmlLimits(Long.MAX_VALUE, 10, 200)).parse(endless);
+            fail();
+        } catch (XmlLimits.LimitException le) {
+            assertTrue(le.getMessage(), le.getMessage().contains("longer"));
+        }
+    }
+
+    private static void assertRejected(XmlLimits limits, String xml, String reason) throws Exception
+    {
+        try {
+            new RunConfigParser(false, limits).parse(stream(xml));
+            fail();
+        } catch (XmlLimits.LimitException le) {
+            assertTrue(le.getMessage(), le.getMessage().contains(reason));
+        }
+    }
+
+    private static InputStream stream(String xml)
+    {
+        return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+    }
+}